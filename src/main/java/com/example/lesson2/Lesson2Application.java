@@ -2,8 +2,12 @@ package com.example.lesson2;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.core.Ordered;
 
 @SpringBootApplication
+// wraps the transaction advice so cache puts only happen once the transaction has completed
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
 public class Lesson2Application {
 
     public static void main(String[] args) {
@@ -0,0 +1,22 @@
+package com.example.lesson2.common.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/**
+ * Tells the other nodes that the entry {@code key} of {@code cacheName} changed at {@code version}.
+ * A receiver keeps an entry that is already newer than {@code version}.
+ */
+@Getter
+@AllArgsConstructor
+public class CacheInvalidation implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String cacheName;
+
+    private final Serializable key;
+
+    private final long version;
+}
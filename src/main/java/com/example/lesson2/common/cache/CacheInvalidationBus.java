@@ -0,0 +1,18 @@
+package com.example.lesson2.common.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts {@link CacheInvalidation}s between the nodes of a cluster.
+ * <p>
+ * An invalidation is delivered to the subscribers of every other node, never back to the publishing one,
+ * which has already updated its own caches. Implementations are selected by
+ * {@code lesson2.cache.invalidation.type}.
+ */
+public interface CacheInvalidationBus {
+    void publish(CacheInvalidation invalidation);
+
+    void subscribe(Consumer<CacheInvalidation> subscriber);
+
+    void unsubscribe(Consumer<CacheInvalidation> subscriber);
+}
@@ -0,0 +1,16 @@
+package com.example.lesson2.common.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration(proxyBeanMethods = false)
+public class CacheInvalidationConfig {
+    @Bean
+    @ConditionalOnProperty(name = "lesson2.cache.invalidation.type", havingValue = "loopback", matchIfMissing = true)
+    public LoopbackCacheInvalidationBus loopbackCacheInvalidationBus(Environment environment) {
+        return new LoopbackCacheInvalidationBus(
+                environment.getProperty("lesson2.cache.invalidation.channel", "lesson2"));
+    }
+}
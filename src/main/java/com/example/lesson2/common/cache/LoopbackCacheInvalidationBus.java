@@ -0,0 +1,61 @@
+package com.example.lesson2.common.cache;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link CacheInvalidationBus} between the application contexts of one JVM that use the same channel.
+ * Invalidations are delivered synchronously on the publishing thread, which makes it suitable for a single
+ * process and for tests that run several nodes side by side; a cluster needs a broker-backed implementation.
+ */
+public class LoopbackCacheInvalidationBus implements CacheInvalidationBus, InitializingBean, DisposableBean {
+    private static final Map<String, Set<LoopbackCacheInvalidationBus>> CHANNELS = new ConcurrentHashMap<>();
+
+    private final String channel;
+
+    private final List<Consumer<CacheInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+
+    public LoopbackCacheInvalidationBus(String channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        CHANNELS.computeIfAbsent(channel, key -> ConcurrentHashMap.newKeySet()).add(this);
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        for (LoopbackCacheInvalidationBus node : CHANNELS.getOrDefault(channel, Set.of())) {
+            if (node != this) {
+                node.subscribers.forEach(subscriber -> subscriber.accept(invalidation));
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public void unsubscribe(Consumer<CacheInvalidation> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    @Override
+    public void destroy() {
+        CHANNELS.computeIfPresent(channel, (key, nodes) -> {
+            nodes.remove(this);
+            return nodes.isEmpty() ? null : nodes;
+        });
+        subscribers.clear();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.lesson2.common.concurrent;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs servlet requests (and MVC async work such as streaming exports) on virtual threads.
+ * Enabled with {@code lesson2.virtual-threads.enabled=true}; requires a JDK with
+ * {@code Executors.newVirtualThreadPerTaskExecutor()} (21+), looked up reflectively so the
+ * code still compiles against the Java 11 baseline.
+ * <p>
+ * The JDBC pool is wrapped in a {@link ConnectionLimitingDataSource} so that unbounded
+ * virtual threads queue fairly for a connection instead of all piling into the pool.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "lesson2.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(
+                    "lesson2.virtual-threads.enabled=true requires a JDK with virtual threads (21+). Running on "
+                            + System.getProperty("java.version"), e);
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<AbstractProtocol<?>> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    @Bean
+    public WebMvcConfigurer virtualThreadAsyncConfigurer(ExecutorService virtualThreadExecutor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(new TaskExecutorAdapter(virtualThreadExecutor));
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // proxies hand out connections of pools that are limited themselves
+                if (!(bean instanceof DataSource) || bean instanceof DelegatingDataSource) {
+                    return bean;
+                }
+                int maxConnections = bean instanceof HikariDataSource
+                        ? ((HikariDataSource) bean).getMaximumPoolSize()
+                        : environment.getProperty("lesson2.virtual-threads.max-connections", Integer.class, 10);
+                long acquireTimeoutMillis = environment.getProperty(
+                        "lesson2.virtual-threads.connection-acquire-timeout-ms", Long.class, 5000L);
+                return new ConnectionLimitingDataSource((DataSource) bean, maxConnections, acquireTimeoutMillis);
+            }
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.lesson2.common.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary.
+ * <p>
+ * Has to sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * the read-only flag is only known once the transaction has started, after it asked for a connection.
+ * For {@code readYourWritesWindowMillis} after a read-write transaction commits, read-only transactions
+ * also go to the primary, so a client reading right after its own write does not hit replication lag.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final long readYourWritesWindowNanos;
+
+    private volatile long lastCommitNanos;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, long readYourWritesWindowMillis) {
+        setTargetDataSources(Map.<Object, Object>of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.readYourWritesWindowNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesWindowMillis);
+        this.lastCommitNanos = System.nanoTime() - readYourWritesWindowNanos;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (readYourWritesWindowNanos > 0 && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        lastCommitNanos = System.nanoTime();
+                    }
+                });
+            }
+            return Route.PRIMARY;
+        }
+        return System.nanoTime() - lastCommitNanos < readYourWritesWindowNanos ? Route.PRIMARY : Route.REPLICA;
+    }
+}
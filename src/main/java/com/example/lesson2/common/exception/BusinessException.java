@@ -7,11 +7,42 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 public class BusinessException extends RuntimeException {
     private static final long serialVersionUID = 1L;
 
+    private final ErrorCode errorCode;
+
+    private final Long detail;
+
     public BusinessException(String message) {
         super(message);
+        this.errorCode = ErrorCode.BUSINESS_ERROR;
+        this.detail = null;
     }
 
     public BusinessException(String message, Throwable cause) {
         super(message, cause);
+        this.errorCode = ErrorCode.BUSINESS_ERROR;
+        this.detail = null;
+    }
+
+    /**
+     * Expected failure on a hot path: no stack trace, and the message is formatted only if it is read.
+     */
+    public BusinessException(ErrorCode errorCode, Long detail) {
+        super(null, null, false, false);
+        this.errorCode = errorCode;
+        this.detail = detail;
+    }
+
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    public Long getDetail() {
+        return detail;
+    }
+
+    @Override
+    public String getMessage() {
+        String message = super.getMessage();
+        return message != null ? message : errorCode.formatMessage(detail);
     }
 }
@@ -0,0 +1,55 @@
+package com.example.lesson2.common.exception;
+
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Structured error codes sent in error bodies as {@code {"status":404,"code":"TODO_NOT_FOUND","todoId":9}}.
+ * The part up to the detail is encoded once per code, and the message is only formatted when it is read.
+ */
+public enum ErrorCode {
+    RESOURCE_NOT_FOUND(HttpStatus.NOT_FOUND, null, "The requested resource is not found."),
+    TODO_NOT_FOUND(HttpStatus.NOT_FOUND, "todoId", "The requested Todo is not found. (id=%d)"),
+    BUSINESS_ERROR(HttpStatus.CONFLICT, null, "The request conflicts with the current state."),
+    UNFINISHED_QUOTA_EXCEEDED(HttpStatus.CONFLICT, "limit", "The count of un-finished Todo must not be over %d."),
+    TODO_ALREADY_FINISHED(HttpStatus.CONFLICT, "todoId", "the Requested Todo is already finished. (id=%d)");
+
+    private final HttpStatus status;
+
+    private final String messageFormat;
+
+    private final boolean hasDetail;
+
+    private final byte[] bodyPrefix;
+
+    ErrorCode(HttpStatus status, String detailName, String messageFormat) {
+        this.status = status;
+        this.messageFormat = messageFormat;
+        this.hasDetail = detailName != null;
+        String prefix = "{\"status\":" + status.value() + ",\"code\":\"" + name() + "\""
+                + (detailName == null ? "" : ",\"" + detailName + "\":");
+        this.bodyPrefix = prefix.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public String formatMessage(Long detail) {
+        return String.format(messageFormat, detail);
+    }
+
+    /**
+     * The JSON error body; {@code detail} is ignored by codes without a detail field.
+     */
+    public byte[] toBody(Long detail) {
+        byte[] detailBytes = hasDetail
+                ? String.valueOf(detail).getBytes(StandardCharsets.US_ASCII) : new byte[0];
+        byte[] body = new byte[bodyPrefix.length + detailBytes.length + 1];
+        System.arraycopy(bodyPrefix, 0, body, 0, bodyPrefix.length);
+        System.arraycopy(detailBytes, 0, body, bodyPrefix.length, detailBytes.length);
+        body[body.length - 1] = '}';
+        return body;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.lesson2.common.exception;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.error.ErrorAttributes;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Answers {@link ResourceNotFoundException} and {@link BusinessException} directly with the preformatted
+ * {@link ErrorCode} body, instead of going through {@code sendError} and the {@code /error} dispatch.
+ */
+@RestControllerAdvice
+@Profile("!reactive")
+@ConditionalOnProperty(name = "lesson2.error.fast-path.enabled", havingValue = "true", matchIfMissing = true)
+public class ErrorResponseAdvice {
+
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<byte[]> handleResourceNotFound(ResourceNotFoundException e, WebRequest webRequest) {
+        return toResponse(e.getErrorCode(), e.getDetail(), e, webRequest);
+    }
+
+    @ExceptionHandler(BusinessException.class)
+    public ResponseEntity<byte[]> handleBusiness(BusinessException e, WebRequest webRequest) {
+        return toResponse(e.getErrorCode(), e.getDetail(), e, webRequest);
+    }
+
+    private static ResponseEntity<byte[]> toResponse(ErrorCode errorCode, Long detail, Exception e,
+                                                     WebRequest webRequest) {
+        // keeps the exception tag of http.server.requests
+        webRequest.setAttribute(ErrorAttributes.ERROR_ATTRIBUTE, e, RequestAttributes.SCOPE_REQUEST);
+        return ResponseEntity.status(errorCode.getStatus())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(errorCode.toBody(detail));
+    }
+}
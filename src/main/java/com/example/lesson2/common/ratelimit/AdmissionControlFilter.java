@@ -0,0 +1,84 @@
+package com.example.lesson2.common.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Sheds load with 503 before a request starts work the server cannot finish in time: when
+ * {@code maxInFlight} requests are already being handled, or when more than {@code maxPendingConnections}
+ * threads are already waiting for a JDBC connection.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    private final int maxInFlight;
+
+    private final int maxPendingConnections;
+
+    private final IntSupplier pendingConnections;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Counter admitted;
+
+    private final Counter shedInFlight;
+
+    private final Counter shedPendingConnections;
+
+    public AdmissionControlFilter(int maxInFlight, int maxPendingConnections, IntSupplier pendingConnections,
+                                  MeterRegistry meterRegistry) {
+        this.maxInFlight = maxInFlight;
+        this.maxPendingConnections = maxPendingConnections;
+        this.pendingConnections = pendingConnections;
+        this.admitted = decisionCounter(meterRegistry, "admitted");
+        this.shedInFlight = decisionCounter(meterRegistry, "shed-in-flight");
+        this.shedPendingConnections = decisionCounter(meterRegistry, "shed-pending-connections");
+        Gauge.builder("todo.admission.in-flight", inFlight, AtomicInteger::get)
+                .description("Requests currently admitted")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (pendingConnections.getAsInt() > maxPendingConnections) {
+            shedPendingConnections.increment();
+            reject(response);
+            return;
+        }
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            shedInFlight.increment();
+            reject(response);
+            return;
+        }
+        admitted.increment();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static void reject(HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+    }
+
+    private static Counter decisionCounter(MeterRegistry meterRegistry, String decision) {
+        return Counter.builder("todo.admission")
+                .description("Admission control decisions")
+                .tag("decision", decision)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.lesson2.common.ratelimit;
+
+import com.example.lesson2.common.concurrent.ConnectionLimitingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.IntSupplier;
+
+/**
+ * Registers the per-client rate limiter and the admission control filter in front of the todo endpoints,
+ * after the metrics filter so that rejected requests still show up in {@code http.server.requests}.
+ * The rate limiter runs first, so a flooding client is turned away before it takes an in-flight slot.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+    private static final String[] URL_PATTERNS = {"/todos", "/todos/*"};
+
+    @Bean
+    @ConditionalOnProperty(name = "lesson2.rate-limit.enabled", havingValue = "true")
+    public FilterRegistrationBean<RateLimitingFilter> rateLimitingFilter(RateLimitProperties properties,
+                                                                         MeterRegistry meterRegistry) {
+        FilterRegistrationBean<RateLimitingFilter> registration =
+                new FilterRegistrationBean<>(new RateLimitingFilter(properties, meterRegistry));
+        registration.addUrlPatterns(URL_PATTERNS);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "lesson2.admission.enabled", havingValue = "true")
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(DataSource dataSource,
+                                                                                 MeterRegistry meterRegistry,
+                                                                                 Environment environment) {
+        AdmissionControlFilter filter = new AdmissionControlFilter(
+                environment.getProperty("lesson2.admission.max-in-flight", Integer.class, 256),
+                environment.getProperty("lesson2.admission.max-pending-connections", Integer.class, 32),
+                pendingConnections(dataSource),
+                meterRegistry);
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns(URL_PATTERNS);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+
+    /**
+     * Threads waiting for a connection: in the Hikari pool, plus in the {@link ConnectionLimitingDataSource}
+     * queue when virtual threads are enabled.
+     */
+    static IntSupplier pendingConnections(DataSource dataSource) {
+        HikariDataSource hikariDataSource = unwrap(dataSource, HikariDataSource.class);
+        ConnectionLimitingDataSource limitingDataSource = unwrap(dataSource, ConnectionLimitingDataSource.class);
+        return () -> {
+            int pending = 0;
+            if (hikariDataSource != null) {
+                // the pool only exists after the first connection has been requested
+                HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+                pending += pool == null ? 0 : pool.getThreadsAwaitingConnection();
+            }
+            if (limitingDataSource != null) {
+                pending += limitingDataSource.getQueueLength();
+            }
+            return pending;
+        };
+    }
+
+    private static <T> T unwrap(DataSource dataSource, Class<T> type) {
+        try {
+            return dataSource.isWrapperFor(type) ? dataSource.unwrap(type) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
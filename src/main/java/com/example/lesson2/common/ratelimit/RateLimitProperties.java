@@ -0,0 +1,58 @@
+package com.example.lesson2.common.ratelimit;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties("lesson2.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled;
+
+    /**
+     * Header identifying the client, set by a proxy in front of this service. Believed only when the request
+     * comes from one of {@link #trustedProxies}; other requests are keyed by principal or remote address.
+     */
+    private String clientIdHeader = "X-Client-Id";
+
+    /**
+     * Remote addresses whose {@link #clientIdHeader} is believed.
+     */
+    private List<String> trustedProxies = new ArrayList<>();
+
+    /**
+     * Buckets of idle clients are dropped after this long.
+     */
+    private long idleTimeoutMs = 600_000L;
+
+    private int maxClients = 100_000;
+
+    /**
+     * Checked in order; a request is limited by the first rule it matches and passes if it matches none.
+     */
+    private List<Rule> rules = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Rule {
+        private String name;
+
+        /**
+         * Any method when not set.
+         */
+        private String method;
+
+        /**
+         * Ant-style pattern, e.g. {@code /todos/batch/**}.
+         */
+        private String path;
+
+        private double permitsPerSecond;
+
+        private int burst = 1;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.lesson2.common.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Answers 429 with {@code Retry-After} once a client has used up the {@link TokenBucket} of the rule
+ * its request matches. Each client gets one bucket per rule. A client is the authenticated principal, else the
+ * client id header when a trusted proxy sent it, else the remote address; a header from anyone else is ignored,
+ * as a client could pick a fresh id for every request.
+ */
+public class RateLimitingFilter extends OncePerRequestFilter {
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
+    private final List<RuleState> rules;
+
+    private final String clientIdHeader;
+
+    private final Set<String> trustedProxies;
+
+    private final Cache<String, TokenBucket> buckets;
+
+    public RateLimitingFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.rules = properties.getRules().stream()
+                .map(rule -> new RuleState(rule, meterRegistry))
+                .collect(Collectors.toList());
+        this.clientIdHeader = properties.getClientIdHeader();
+        this.trustedProxies = new HashSet<>(properties.getTrustedProxies());
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(properties.getIdleTimeoutMs(), TimeUnit.MILLISECONDS)
+                .maximumSize(properties.getMaxClients())
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RuleState rule = findRule(request);
+        if (rule == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        TokenBucket bucket = buckets.get(rule.name + '|' + clientId(request),
+                key -> new TokenBucket(rule.permitsPerSecond, rule.burst));
+        if (!bucket.tryAcquire()) {
+            rule.limited.increment();
+            long retryAfterSeconds = Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(bucket.nanosUntilNextPermit() + 999_999_999L));
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value());
+            return;
+        }
+        rule.allowed.increment();
+        filterChain.doFilter(request, response);
+    }
+
+    private RuleState findRule(HttpServletRequest request) {
+        String path = URL_PATH_HELPER.getPathWithinApplication(request);
+        for (RuleState rule : rules) {
+            if ((rule.method == null || rule.method.equalsIgnoreCase(request.getMethod()))
+                    && PATH_MATCHER.match(rule.path, path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private String clientId(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "principal:" + principal.getName();
+        }
+        String remoteAddr = request.getRemoteAddr();
+        if (trustedProxies.contains(remoteAddr)) {
+            String clientId = request.getHeader(clientIdHeader);
+            if (clientId != null && !clientId.isEmpty()) {
+                return "client:" + clientId;
+            }
+        }
+        return "address:" + remoteAddr;
+    }
+
+    private static final class RuleState {
+        private final String name;
+
+        private final String method;
+
+        private final String path;
+
+        private final double permitsPerSecond;
+
+        private final int burst;
+
+        private final Counter allowed;
+
+        private final Counter limited;
+
+        private RuleState(RateLimitProperties.Rule rule, MeterRegistry meterRegistry) {
+            this.name = rule.getName();
+            this.method = rule.getMethod();
+            this.path = rule.getPath();
+            this.permitsPerSecond = rule.getPermitsPerSecond();
+            this.burst = rule.getBurst();
+            this.allowed = decisionCounter(meterRegistry, "allowed");
+            this.limited = decisionCounter(meterRegistry, "limited");
+        }
+
+        private Counter decisionCounter(MeterRegistry meterRegistry, String decision) {
+            return Counter.builder("todo.ratelimit")
+                    .description("Rate limiter decisions")
+                    .tag("rule", name)
+                    .tag("decision", decision)
+                    .register(meterRegistry);
+        }
+    }
+}
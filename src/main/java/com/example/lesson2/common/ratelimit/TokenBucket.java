@@ -0,0 +1,55 @@
+package com.example.lesson2.common.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket holding up to {@code burst} permits and refilled at {@code permitsPerSecond}.
+ * <p>
+ * The state is a single "theoretical arrival time" (the instant the bucket will be full again, minus
+ * the burst) updated by compare-and-set, so acquiring never blocks and a bucket costs one {@code long}.
+ */
+public class TokenBucket {
+    private final long nanosPerPermit;
+
+    private final long toleranceNanos;
+
+    private final LongSupplier nanoClock;
+
+    private final AtomicLong theoreticalArrivalTime;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive and burst at least 1.");
+        }
+        this.nanosPerPermit = (long) (1_000_000_000L / permitsPerSecond);
+        this.toleranceNanos = nanosPerPermit * (burst - 1);
+        this.nanoClock = nanoClock;
+        this.theoreticalArrivalTime = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long arrivalTime = theoreticalArrivalTime.get();
+            long base = arrivalTime - now > 0 ? arrivalTime : now;
+            if (base - now > toleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrivalTime.compareAndSet(arrivalTime, base + nanosPerPermit)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Time until the next permit becomes available, 0 if one is available now.
+     */
+    public long nanosUntilNextPermit() {
+        return Math.max(0L, theoreticalArrivalTime.get() - nanoClock.getAsLong() - toleranceNanos);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.lesson2.todo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Field-by-field copy between {@link Todo} and {@link TodoResource}.
+ * Allocates only the target object; this is the default bean mapper.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.bean-mapper", havingValue = "direct", matchIfMissing = true)
+public class DirectTodoBeanMapper implements TodoBeanMapper {
+
+    @Override
+    public TodoResource toResource(Todo todo) {
+        if (todo == null) {
+            return null;
+        }
+        TodoResource todoResource = new TodoResource();
+        todoResource.setTodoId(todo.getTodoId());
+        todoResource.setTodoTitle(todo.getTodoTitle());
+        todoResource.setFinished(todo.isFinished());
+        todoResource.setCreatedAt(todo.getCreatedAt());
+        todoResource.setOwner(todo.getOwner());
+        return todoResource;
+    }
+
+    @Override
+    public Todo toTodo(TodoResource todoResource) {
+        if (todoResource == null) {
+            return null;
+        }
+        Todo todo = new Todo();
+        todo.setTodoId(todoResource.getTodoId());
+        todo.setTodoTitle(todoResource.getTodoTitle());
+        todo.setFinished(todoResource.isFinished());
+        todo.setCreatedAt(todoResource.getCreatedAt());
+        todo.setOwner(todoResource.getOwner());
+        return todo;
+    }
+}
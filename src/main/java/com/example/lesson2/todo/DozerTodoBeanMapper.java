@@ -0,0 +1,27 @@
+package com.example.lesson2.todo;
+
+import com.github.dozermapper.core.Mapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reflective mapping through Dozer. Enabled with {@code todo.bean-mapper=dozer}.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.bean-mapper", havingValue = "dozer")
+public class DozerTodoBeanMapper implements TodoBeanMapper {
+
+    @Autowired
+    Mapper beanMapper;
+
+    @Override
+    public TodoResource toResource(Todo todo) {
+        return beanMapper.map(todo, TodoResource.class);
+    }
+
+    @Override
+    public Todo toTodo(TodoResource todoResource) {
+        return beanMapper.map(todoResource, Todo.class);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.lesson2.todo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link TodoBatchRepository} over the {@link InMemoryTodoRepository}. Writes are applied at once;
+ * {@link #flush()} only hands back the update counts collected on the calling thread since the last flush.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.repository.type", havingValue = "memory")
+public class InMemoryTodoBatchRepository implements TodoBatchRepository {
+    private final ThreadLocal<List<Integer>> updateCounts = ThreadLocal.withInitial(ArrayList::new);
+
+    @Autowired
+    InMemoryTodoRepository todoRepository;
+
+    @Override
+    public List<Todo> findAllById(Collection<Long> todoIds) {
+        return todoRepository.findAllById(todoIds);
+    }
+
+    @Override
+    public void create(Todo todo) {
+        todoRepository.create(todo);
+        updateCounts.get().add(1);
+    }
+
+    @Override
+    public void createWithId(Todo todo) {
+        todoRepository.createWithId(todo);
+        updateCounts.get().add(1);
+    }
+
+    @Override
+    public void updateUnfinishedById(Long todoId) {
+        updateCounts.get().add((int) todoRepository.updateUnfinishedById(todoId));
+    }
+
+    @Override
+    public void deleteByIdAndFinished(Long todoId, boolean finished) {
+        updateCounts.get().add((int) todoRepository.deleteByIdAndFinished(todoId, finished));
+    }
+
+    @Override
+    public int[] flush() {
+        int[] counts = updateCounts.get().stream().mapToInt(Integer::intValue).toArray();
+        updateCounts.remove();
+        return counts;
+    }
+}
@@ -0,0 +1,513 @@
+package com.example.lesson2.todo;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * {@link TodoRepository} kept in memory, for nodes without a database.
+ * <p>
+ * Todos live in {@link TodoLongHashMap}s, one per lock stripe, chosen by id, so writers to different
+ * stripes do not contend. Stored todos are private copies; callers always get copies back.
+ * Finished and unfinished counts, and unfinished counts per owner, are kept up to date on every write,
+ * so counting does not scan. An owner's count is dropped once it reaches zero.
+ * A skip list of all ids serves the queries in id order: a page starts at {@code tailSet(after)} and stops
+ * after {@code limit} matches, and a full scan needs no sort. Latest-first queries keep only the newest
+ * {@code limit} matches in a heap.
+ * Nothing here takes part in Spring transactions: a rolled back transaction keeps its writes.
+ * <p>
+ * Every write is handed to the {@link TodoChangeLog} under its stripe lock before it is applied, so the
+ * log holds the writes to one todo in the order they happened.
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name = "todo.repository.type", havingValue = "memory")
+public class InMemoryTodoRepository implements TodoRepository {
+    private static final int STRIPES = 16;
+
+    private static final Comparator<Todo> BY_ID = Comparator.comparingLong(Todo::getTodoId);
+
+    private static final Comparator<Todo> LATEST_FIRST = Comparator.comparing(Todo::getCreatedAt,
+            Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder())).thenComparing(BY_ID).reversed();
+
+    private final TodoLongHashMap[] maps = new TodoLongHashMap[STRIPES];
+
+    private final ReadWriteLock[] locks = new ReadWriteLock[STRIPES];
+
+    /**
+     * Updated under the stripe lock of the id, together with its map.
+     */
+    private final ConcurrentSkipListSet<Long> todoIds = new ConcurrentSkipListSet<>();
+
+    private final AtomicLong idSequence = new AtomicLong();
+
+    private final AtomicLong versionSequence = new AtomicLong();
+
+    private final AtomicLong finishedCount = new AtomicLong();
+
+    private final AtomicLong unfinishedCount = new AtomicLong();
+
+    private final ConcurrentHashMap<String, Long> unfinishedCountByOwner = new ConcurrentHashMap<>();
+
+    private volatile TodoChangeLog changeLog = TodoChangeLog.NONE;
+
+    public InMemoryTodoRepository() {
+        for (int i = 0; i < STRIPES; i++) {
+            maps[i] = new TodoLongHashMap();
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    @Override
+    public Optional<Todo> findById(Long todoId) {
+        return Optional.ofNullable(read(todoId, todo -> todo == null ? null : copy(todo)));
+    }
+
+    @Override
+    public Collection<Todo> findAll() {
+        return page(todo -> true, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Todo> findPage(long after, int limit) {
+        return page(todo -> true, after, limit);
+    }
+
+    @Override
+    public List<Todo> findPageByFinished(boolean finished, long after, int limit) {
+        return page(todo -> todo.isFinished() == finished, after, limit);
+    }
+
+    @Override
+    public List<Todo> findLatestByFinished(boolean finished, int limit) {
+        return latest(todo -> todo.isFinished() == finished, limit);
+    }
+
+    @Override
+    public List<Todo> findAllById(Collection<Long> todoIds) {
+        List<Todo> todos = new ArrayList<>(todoIds.size());
+        for (Long todoId : todoIds) {
+            findById(todoId).ifPresent(todos::add);
+        }
+        return todos;
+    }
+
+    @Override
+    public Cursor<Todo> findAllAsCursor() {
+        return new IdOrderCursor();
+    }
+
+    @Override
+    public void create(Todo todo) {
+        todo.setTodoId(idSequence.incrementAndGet());
+        insert(todo);
+    }
+
+    @Override
+    public void createWithId(Todo todo) {
+        insert(todo);
+    }
+
+    @Override
+    public List<Long> allocateIds(int count) {
+        long first = idSequence.getAndAdd(count) + 1;
+        List<Long> todoIds = new ArrayList<>(count);
+        for (long todoId = first; todoId < first + count; todoId++) {
+            todoIds.add(todoId);
+        }
+        return todoIds;
+    }
+
+    @Override
+    public long updateById(Long todoId) {
+        return write(todoId, map -> {
+            Todo todo = map.get(todoId);
+            if (todo == null) {
+                return 0L;
+            }
+            markFinished(todo);
+            return 1L;
+        });
+    }
+
+    @Override
+    public long updateUnfinishedById(Long todoId) {
+        return finishById(todoId).isPresent() ? 1L : 0L;
+    }
+
+    @Override
+    public Optional<Todo> finishById(Long todoId) {
+        return Optional.ofNullable(write(todoId, map -> {
+            Todo todo = map.get(todoId);
+            if (todo == null || todo.isFinished()) {
+                return null;
+            }
+            markFinished(todo);
+            return copy(todo);
+        }));
+    }
+
+    @Override
+    public long deleteById(Long todoId) {
+        return deleteByIdReturning(todoId).isPresent() ? 1L : 0L;
+    }
+
+    @Override
+    public Optional<Todo> deleteByIdReturning(Long todoId) {
+        return Optional.ofNullable(write(todoId, map -> {
+            Todo todo = map.get(todoId);
+            if (todo != null) {
+                changeLog.appendDelete(todoId);
+                map.remove(todoId);
+                todoIds.remove(todoId);
+                removed(todo);
+            }
+            return todo;
+        }));
+    }
+
+    @Override
+    public long deleteByIdAndFinished(Long todoId, boolean finished) {
+        return write(todoId, map -> {
+            Todo todo = map.get(todoId);
+            if (todo == null || todo.isFinished() != finished) {
+                return 0L;
+            }
+            changeLog.appendDelete(todoId);
+            map.remove(todoId);
+            todoIds.remove(todoId);
+            removed(todo);
+            return 1L;
+        });
+    }
+
+    @Override
+    public long countByFinished(boolean finished) {
+        return counter(finished).get();
+    }
+
+    @Override
+    public long countUnfinishedByOwner(String owner) {
+        return unfinishedCountByOwner.getOrDefault(owner, 0L);
+    }
+
+    /**
+     * The highest version handed out so far instead of the highest remaining one; it moves on every write,
+     * which is all a collection ETag needs.
+     */
+    @Override
+    public TodoCollectionVersion findCollectionVersion() {
+        return new TodoCollectionVersion(finishedCount.get() + unfinishedCount.get(), versionSequence.get());
+    }
+
+    private void insert(Todo todo) {
+        long todoId = todo.getTodoId();
+        todo.setVersion(versionSequence.incrementAndGet());
+        Todo stored = copy(todo);
+        write(todoId, map -> {
+            if (map.get(todoId) != null) {
+                throw new DuplicateKeyException("Duplicate todoId: " + todoId);
+            }
+            changeLog.appendCreate(stored);
+            map.put(todoId, stored);
+            todoIds.add(todoId);
+            added(stored);
+            return null;
+        });
+    }
+
+    private void markFinished(Todo todo) {
+        long version = versionSequence.incrementAndGet();
+        changeLog.appendFinish(todo.getTodoId(), version);
+        applyFinish(todo, version);
+    }
+
+    private void applyFinish(Todo todo, long version) {
+        if (!todo.isFinished()) {
+            todo.setFinished(true);
+            unfinishedCount.decrementAndGet();
+            finishedCount.incrementAndGet();
+            addUnfinished(todo.getOwner(), -1);
+        }
+        todo.setVersion(version);
+    }
+
+    void setChangeLog(TodoChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    long getIdSequence() {
+        return idSequence.get();
+    }
+
+    long getVersionSequence() {
+        return versionSequence.get();
+    }
+
+    /**
+     * Copies each stripe under its read lock and hands the copies over outside of it.
+     */
+    void forEachTodo(Consumer<Todo> action) {
+        for (int i = 0; i < STRIPES; i++) {
+            List<Todo> todos = new ArrayList<>(maps[i].size());
+            locks[i].readLock().lock();
+            try {
+                maps[i].forEach(todo -> todos.add(copy(todo)));
+            } finally {
+                locks[i].readLock().unlock();
+            }
+            todos.forEach(action);
+        }
+    }
+
+    // restore*: replay of logged writes, idempotent and not logged again
+
+    void restore(Todo todo) {
+        long todoId = todo.getTodoId();
+        Todo stored = copy(todo);
+        write(todoId, map -> {
+            Todo previous = map.put(todoId, stored);
+            if (previous != null) {
+                removed(previous);
+            }
+            todoIds.add(todoId);
+            added(stored);
+            return null;
+        });
+        restoreSequences(todoId, stored.getVersion() == null ? 0 : stored.getVersion());
+    }
+
+    void restoreFinish(long todoId, long version) {
+        write(todoId, map -> {
+            Todo todo = map.get(todoId);
+            if (todo != null) {
+                applyFinish(todo, version);
+            }
+            return null;
+        });
+        restoreSequences(todoId, version);
+    }
+
+    void restoreDelete(long todoId) {
+        write(todoId, map -> {
+            Todo todo = map.remove(todoId);
+            if (todo != null) {
+                todoIds.remove(todoId);
+                removed(todo);
+            }
+            return null;
+        });
+        restoreSequences(todoId, 0);
+    }
+
+    void restoreSequences(long todoId, long version) {
+        idSequence.accumulateAndGet(todoId, Math::max);
+        versionSequence.accumulateAndGet(version, Math::max);
+    }
+
+    void clear() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i].writeLock().lock();
+            try {
+                maps[i] = new TodoLongHashMap();
+                int cleared = i;
+                todoIds.removeIf(todoId -> stripe(todoId) == cleared);
+            } finally {
+                locks[i].writeLock().unlock();
+            }
+        }
+        finishedCount.set(0);
+        unfinishedCount.set(0);
+        unfinishedCountByOwner.clear();
+    }
+
+    private void added(Todo todo) {
+        counter(todo.isFinished()).incrementAndGet();
+        if (!todo.isFinished()) {
+            addUnfinished(todo.getOwner(), 1);
+        }
+    }
+
+    private void removed(Todo todo) {
+        counter(todo.isFinished()).decrementAndGet();
+        if (!todo.isFinished()) {
+            addUnfinished(todo.getOwner(), -1);
+        }
+    }
+
+    private void addUnfinished(String owner, long delta) {
+        // returning null removes the entry, so owners without unfinished todos take no memory
+        unfinishedCountByOwner.merge(owner == null ? Todo.DEFAULT_OWNER : owner, delta, (count, change) -> count + change == 0 ? null : count + change);
+    }
+
+    private AtomicLong counter(boolean finished) {
+        return finished ? finishedCount : unfinishedCount;
+    }
+
+    /**
+     * The first {@code limit} todos after {@code after} in id order that pass {@code filter}; each is read
+     * under its own stripe lock, so the page is as consistent as a snapshot taken stripe by stripe.
+     */
+    private List<Todo> page(Predicate<Todo> filter, long after, int limit) {
+        List<Todo> todos = new ArrayList<>(Math.min(limit, todoIds.size()));
+        for (Long todoId : todoIds.tailSet(after, false)) {
+            Todo todo = read(todoId, stored -> stored == null || !filter.test(stored) ? null : copy(stored));
+            if (todo != null) {
+                todos.add(todo);
+                if (todos.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return todos;
+    }
+
+    private List<Todo> latest(Predicate<Todo> filter, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        // the head is the oldest of the newest todos kept so far
+        PriorityQueue<Todo> newest = new PriorityQueue<>(limit + 1, LATEST_FIRST.reversed());
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i].readLock().lock();
+            try {
+                maps[i].forEach(todo -> {
+                    if (!filter.test(todo)) {
+                        return;
+                    }
+                    if (newest.size() < limit) {
+                        newest.add(copy(todo));
+                    } else if (LATEST_FIRST.compare(todo, newest.peek()) < 0) {
+                        newest.poll();
+                        newest.add(copy(todo));
+                    }
+                });
+            } finally {
+                locks[i].readLock().unlock();
+            }
+        }
+        List<Todo> todos = new ArrayList<>(newest);
+        todos.sort(LATEST_FIRST);
+        return todos;
+    }
+
+    private <T> T read(long todoId, Function<Todo, T> reader) {
+        int stripe = stripe(todoId);
+        locks[stripe].readLock().lock();
+        try {
+            return reader.apply(maps[stripe].get(todoId));
+        } finally {
+            locks[stripe].readLock().unlock();
+        }
+    }
+
+    private <T> T write(long todoId, Function<TodoLongHashMap, T> writer) {
+        int stripe = stripe(todoId);
+        locks[stripe].writeLock().lock();
+        try {
+            return writer.apply(maps[stripe]);
+        } finally {
+            locks[stripe].writeLock().unlock();
+        }
+    }
+
+    private static int stripe(long todoId) {
+        return (int) (todoId ^ (todoId >>> 32)) & (STRIPES - 1);
+    }
+
+    private static Todo copy(Todo todo) {
+        return new Todo(todo.getTodoId(), todo.getTodoTitle(), todo.isFinished(), todo.getCreatedAt(), todo.getVersion(),
+                todo.getOwner());
+    }
+
+    /**
+     * Walks the id skip list while it is iterated and copies one todo at a time under its stripe lock, so an
+     * export holds no more than one todo. Like the skip list, it may or may not see todos created or deleted
+     * while it runs.
+     */
+    private final class IdOrderCursor implements Cursor<Todo> {
+        private final Iterator<Long> ids = todoIds.iterator();
+
+        private Todo next;
+
+        private int currentIndex = -1;
+
+        private boolean open = true;
+
+        private boolean consumed;
+
+        private boolean iteratorReturned;
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public boolean isConsumed() {
+            return consumed;
+        }
+
+        @Override
+        public int getCurrentIndex() {
+            return currentIndex;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+        @Override
+        public Iterator<Todo> iterator() {
+            if (iteratorReturned) {
+                throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+            }
+            iteratorReturned = true;
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    if (!open) {
+                        return false;
+                    }
+                    while (next == null && ids.hasNext()) {
+                        next = read(ids.next(), stored -> stored == null ? null : copy(stored));
+                    }
+                    consumed = next == null;
+                    return !consumed;
+                }
+
+                @Override
+                public Todo next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Todo todo = next;
+                    next = null;
+                    currentIndex++;
+                    return todo;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.lesson2.todo;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link TodoRepository} statements executed through a MyBatis BATCH executor.
+ * Writes are queued as JDBC batch entries and sent in one round trip by {@link #flush()}.
+ * <p>
+ * MyBatis does not allow switching executor types inside a transaction, so a transaction
+ * that uses this class must not also go through the regular {@link TodoRepository}.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.repository.type", havingValue = "mybatis", matchIfMissing = true)
+public class MybatisTodoBatchRepository implements TodoBatchRepository {
+    private final SqlSessionTemplate batchSqlSessionTemplate;
+
+    private final TodoRepository batchTodoRepository;
+
+    public MybatisTodoBatchRepository(SqlSessionFactory sqlSessionFactory) {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        if (!configuration.hasMapper(TodoRepository.class)) {
+            configuration.addMapper(TodoRepository.class);
+        }
+        this.batchSqlSessionTemplate = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        this.batchTodoRepository = batchSqlSessionTemplate.getMapper(TodoRepository.class);
+    }
+
+    @Override
+    public List<Todo> findAllById(Collection<Long> todoIds) {
+        return batchTodoRepository.findAllById(todoIds);
+    }
+
+    @Override
+    public void create(Todo todo) {
+        batchTodoRepository.create(todo);
+    }
+
+    @Override
+    public void createWithId(Todo todo) {
+        batchTodoRepository.createWithId(todo);
+    }
+
+    @Override
+    public void updateUnfinishedById(Long todoId) {
+        batchTodoRepository.updateUnfinishedById(todoId);
+    }
+
+    @Override
+    public void deleteByIdAndFinished(Long todoId, boolean finished) {
+        batchTodoRepository.deleteByIdAndFinished(todoId, finished);
+    }
+
+    /**
+     * Generated keys are assigned to the created {@link Todo}s at this point.
+     */
+    @Override
+    public int[] flush() {
+        List<BatchResult> batchResults = batchSqlSessionTemplate.flushStatements();
+        int size = 0;
+        for (BatchResult batchResult : batchResults) {
+            size += batchResult.getUpdateCounts().length;
+        }
+        int[] updateCounts = new int[size];
+        int offset = 0;
+        for (BatchResult batchResult : batchResults) {
+            int[] counts = batchResult.getUpdateCounts();
+            System.arraycopy(counts, 0, updateCounts, offset, counts.length);
+            offset += counts.length;
+        }
+        return updateCounts;
+    }
+}
@@ -15,6 +15,8 @@ import java.time.LocalDateTime;
 public class Todo implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    public static final String DEFAULT_OWNER = "default";
+
     private Long todoId;
 
     private String todoTitle;
@@ -22,4 +24,16 @@ public class Todo implements Serializable {
     private boolean finished;
 
     private LocalDateTime createdAt;
+
+    private Long version;
+
+    private String owner = DEFAULT_OWNER;
+
+    public Todo(Long todoId, String todoTitle, boolean finished, LocalDateTime createdAt) {
+        this(todoId, todoTitle, finished, createdAt, null);
+    }
+
+    public Todo(Long todoId, String todoTitle, boolean finished, LocalDateTime createdAt, Long version) {
+        this(todoId, todoTitle, finished, createdAt, version, DEFAULT_OWNER);
+    }
 }
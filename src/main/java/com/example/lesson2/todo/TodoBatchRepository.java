@@ -0,0 +1,24 @@
+package com.example.lesson2.todo;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes that are queued and sent together by {@link #flush()}.
+ */
+public interface TodoBatchRepository {
+    List<Todo> findAllById(Collection<Long> todoIds);
+
+    void create(Todo todo);
+
+    void createWithId(Todo todo);
+
+    void updateUnfinishedById(Long todoId);
+
+    void deleteByIdAndFinished(Long todoId, boolean finished);
+
+    /**
+     * Executes the queued statements and returns their update counts in the order they were queued.
+     */
+    int[] flush();
+}
@@ -0,0 +1,24 @@
+package com.example.lesson2.todo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TodoBatchResource implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @NotEmpty
+    @Size(max = TodoController.MAX_BATCH_SIZE)
+    private List<@Valid TodoResource> todos;
+}
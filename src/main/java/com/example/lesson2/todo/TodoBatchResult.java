@@ -0,0 +1,32 @@
+package com.example.lesson2.todo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class TodoBatchResult {
+    public enum Status {
+        OK, NOT_FOUND, CONFLICT
+    }
+
+    private final Long todoId;
+
+    private final Status status;
+
+    private final Todo todo;
+
+    private final String message;
+
+    static TodoBatchResult ok(Todo todo) {
+        return new TodoBatchResult(todo.getTodoId(), Status.OK, todo, null);
+    }
+
+    static TodoBatchResult notFound(Long todoId) {
+        return new TodoBatchResult(todoId, Status.NOT_FOUND, null, TodoServiceImpl.notFoundMessage(todoId));
+    }
+
+    static TodoBatchResult conflict(Long todoId, String message) {
+        return new TodoBatchResult(todoId, Status.CONFLICT, null, message);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.lesson2.todo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TodoBatchResultResource implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long todoId;
+
+    private int status;
+
+    private String message;
+
+    private TodoResource todo;
+}
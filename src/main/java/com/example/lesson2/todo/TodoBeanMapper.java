@@ -0,0 +1,7 @@
+package com.example.lesson2.todo;
+
+public interface TodoBeanMapper {
+    TodoResource toResource(Todo todo);
+
+    Todo toTodo(TodoResource todoResource);
+}
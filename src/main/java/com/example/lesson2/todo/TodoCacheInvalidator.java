@@ -0,0 +1,219 @@
+package com.example.lesson2.todo;
+
+import com.example.lesson2.common.cache.CacheInvalidation;
+import com.example.lesson2.common.cache.CacheInvalidationBus;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the {@code todo} cache coherent across nodes. Every committed {@link TodoChangedEvent} is broadcast
+ * with the todo's version, and an invalidation from another node evicts exactly that todo unless the entry
+ * cached here is already newer.
+ * <p>
+ * A {@code @Cacheable} load may have read the row before the other node committed and put it only after the
+ * invalidation went through. So every invalidation also leaves a tombstone with its version for
+ * {@link #TOMBSTONE_TTL}, and {@link TodoServiceImpl} resolves its cache through this class, which refuses to
+ * put a todo older than the tombstone. Deletes are broadcast with the highest version, as no later row exists.
+ * <p>
+ * The {@code GET /todos} body needs no invalidation: {@link TodoListBodyCache} is keyed by the collection ETag.
+ */
+@Component
+public class TodoCacheInvalidator implements CacheResolver, InitializingBean, DisposableBean {
+    /**
+     * Far longer than any load takes, and as long as the todo cache keeps an entry.
+     */
+    static final Duration TOMBSTONE_TTL = Duration.ofSeconds(60);
+
+    @Autowired
+    CacheInvalidationBus invalidationBus;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private final Consumer<CacheInvalidation> subscriber = this::onInvalidation;
+
+    private final ConcurrentMap<Object, Long> tombstones = Caffeine.newBuilder()
+            .expireAfterWrite(TOMBSTONE_TTL)
+            .maximumSize(100_000)
+            .<Object, Long>build()
+            .asMap();
+
+    private Counter evicted;
+
+    private Counter kept;
+
+    private Counter putRejected;
+
+    @Override
+    public void afterPropertiesSet() {
+        evicted = counter("evicted");
+        kept = counter("kept");
+        putRejected = counter("put-rejected");
+        invalidationBus.subscribe(subscriber);
+    }
+
+    @Override
+    public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+        return context.getOperation().getCacheNames().stream().map(cacheName -> {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache == null) {
+                throw new IllegalArgumentException("Cannot find cache named '" + cacheName + "'");
+            }
+            return TodoServiceImpl.TODO_CACHE.equals(cacheName) ? new TombstoneCheckingCache(cache) : cache;
+        }).collect(Collectors.toList());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodoChanged(TodoChangedEvent event) {
+        Todo todo = event.getTodo();
+        // a todo queued by the write-behind buffer has no version yet, so it is evicted whatever is cached
+        long version = event.getType() == TodoChangedEvent.Type.DELETED || todo.getVersion() == null
+                ? Long.MAX_VALUE : todo.getVersion();
+        invalidationBus.publish(new CacheInvalidation(TodoServiceImpl.TODO_CACHE, todo.getTodoId(), version));
+    }
+
+    @SuppressWarnings("unchecked")
+    void onInvalidation(CacheInvalidation invalidation) {
+        if (!TodoServiceImpl.TODO_CACHE.equals(invalidation.getCacheName())) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(TodoServiceImpl.TODO_CACHE);
+        if (cache == null) {
+            return;
+        }
+        // before the evict, so a put that misses the evict is checked against it
+        tombstones.merge(invalidation.getKey(), invalidation.getVersion(), Math::max);
+        Object nativeCache = cache.getNativeCache();
+        if (!(nativeCache instanceof com.github.benmanes.caffeine.cache.Cache)) {
+            cache.evict(invalidation.getKey());
+            evicted.increment();
+            return;
+        }
+        // compare and evict atomically, so a newer todo cached in between is not thrown away
+        ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache).asMap()
+                .computeIfPresent(invalidation.getKey(), (key, value) -> {
+                    if (value instanceof Todo && isNewer((Todo) value, invalidation.getVersion())) {
+                        kept.increment();
+                        return value;
+                    }
+                    evicted.increment();
+                    return null;
+                });
+    }
+
+    private boolean isInvalidated(Object key, Todo todo) {
+        Long tombstone = tombstones.get(key);
+        return tombstone != null && (todo.getVersion() == null || todo.getVersion() < tombstone);
+    }
+
+    private static boolean isNewer(Todo todo, long version) {
+        return todo.getVersion() != null && todo.getVersion() > version;
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder("todo.cache.invalidation")
+                .description("Invalidations received from other nodes")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void destroy() {
+        invalidationBus.unsubscribe(subscriber);
+    }
+
+    /**
+     * The todo cache, refusing to put a todo older than its tombstone.
+     */
+    private final class TombstoneCheckingCache implements Cache {
+        private final Cache cache;
+
+        private TombstoneCheckingCache(Cache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public String getName() {
+            return cache.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return cache.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return cache.get(key);
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return cache.get(key, type);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return cache.get(key, valueLoader);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void put(Object key, Object value) {
+            Object nativeCache = cache.getNativeCache();
+            if (!(value instanceof Todo) || !(nativeCache instanceof com.github.benmanes.caffeine.cache.Cache)) {
+                cache.put(key, value);
+                return;
+            }
+            // checked under the entry's lock, which onInvalidation takes only after leaving its tombstone
+            ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache).asMap()
+                    .compute(key, (entryKey, cached) -> {
+                        if (isInvalidated(entryKey, (Todo) value)) {
+                            putRejected.increment();
+                            return cached;
+                        }
+                        return value;
+                    });
+        }
+
+        @Override
+        public void evict(Object key) {
+            cache.evict(key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            return cache.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            cache.clear();
+        }
+
+        @Override
+        public boolean invalidate() {
+            return cache.invalidate();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.lesson2.todo;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Committed todo changes, numbered and kept in a bounded ring buffer, pushed to SSE subscribers.
+ * <p>
+ * A subscriber sending {@code Last-Event-ID} gets the changes it missed replayed first. When they have
+ * already left the buffer it gets a {@code reset} event instead and has to reload {@code GET /todos} once.
+ * <p>
+ * Every subscriber has its own bounded queue, drained by one task at a time on a shared pool, so it sees
+ * the changes in sequence order and a slow connection only holds up itself. A subscriber whose queue is full
+ * is disconnected and reconnects with its {@code Last-Event-ID}.
+ * <p>
+ * The feed is single-node: only the changes committed on this node are numbered, and the numbers start over
+ * when it restarts. Behind a load balancer, clients have to stick to one node; a {@code Last-Event-ID} from
+ * another node can replay the wrong changes.
+ */
+@Component
+public class TodoChangeFeed implements InitializingBean, DisposableBean {
+    static final String RESET_EVENT = "reset";
+
+    @Value("${todo.change-feed.capacity:1024}")
+    int capacity;
+
+    @Value("${todo.change-feed.timeout-ms:600000}")
+    long timeoutMillis;
+
+    @Value("${todo.change-feed.subscriber-queue-capacity:256}")
+    int subscriberQueueCapacity;
+
+    @Autowired
+    TodoBeanMapper beanMapper;
+
+    private final List<Subscriber> subscribers = new ArrayList<>();
+
+    private final AtomicInteger dispatcherThreads = new AtomicInteger();
+
+    private final ExecutorService dispatcher = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "todo-change-feed-" + dispatcherThreads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private TodoChangeResource[] buffer;
+
+    private long lastSequence;
+
+    @Override
+    public void afterPropertiesSet() {
+        buffer = new TodoChangeResource[capacity];
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodoChanged(TodoChangedEvent event) {
+        Todo todo = event.getTodo();
+        TodoResource todoResource = event.getType() == TodoChangedEvent.Type.DELETED
+                ? null : beanMapper.toResource(todo);
+        synchronized (this) {
+            TodoChangeResource change = new TodoChangeResource(++lastSequence,
+                    event.getType().name().toLowerCase(Locale.ROOT), todo.getTodoId(), todoResource);
+            buffer[(int) (change.getSequence() % capacity)] = change;
+            // offered under the lock, so every queue gets the changes in sequence order
+            subscribers.removeIf(subscriber -> !subscriber.offer(change));
+        }
+    }
+
+    public SseEmitter subscribe(Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> unsubscribe(subscriber));
+        synchronized (this) {
+            List<TodoChangeResource> missed = changesAfter(lastEventId);
+            subscribers.add(subscriber);
+            if (missed == null || missed.size() >= subscriberQueueCapacity) {
+                subscriber.offer(new TodoChangeResource(lastSequence, RESET_EVENT, null, null));
+            } else {
+                missed.forEach(subscriber::offer);
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * Changes after {@code lastEventId}, or {@code null} when some of them are no longer buffered.
+     */
+    synchronized List<TodoChangeResource> changesAfter(Long lastEventId) {
+        if (lastEventId == null) {
+            return Collections.emptyList();
+        }
+        long oldestSequence = Math.max(1, lastSequence - capacity + 1);
+        if (lastEventId > lastSequence || lastEventId + 1 < oldestSequence) {
+            return null;
+        }
+        List<TodoChangeResource> changes = new ArrayList<>((int) (lastSequence - lastEventId));
+        for (long sequence = lastEventId + 1; sequence <= lastSequence; sequence++) {
+            changes.add(buffer[(int) (sequence % capacity)]);
+        }
+        return changes;
+    }
+
+    private synchronized void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdownNow();
+        List<Subscriber> stopped;
+        synchronized (this) {
+            stopped = new ArrayList<>(subscribers);
+            subscribers.clear();
+        }
+        stopped.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private final class Subscriber implements Runnable {
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<TodoChangeResource> queue = new ArrayBlockingQueue<>(subscriberQueueCapacity);
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private volatile boolean dropped;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Queues the change, or drops the subscriber and returns {@code false} when it is too far behind.
+         * The drain task then completes the emitter once its current send returns.
+         */
+        private boolean offer(TodoChangeResource change) {
+            if (!dropped && !queue.offer(change)) {
+                dropped = true;
+                queue.clear();
+            }
+            schedule();
+            return !dropped;
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                TodoChangeResource change;
+                while (!dropped && (change = queue.poll()) != null) {
+                    if (!send(change)) {
+                        queue.clear();
+                        return;
+                    }
+                }
+                if (dropped) {
+                    emitter.complete();
+                    return;
+                }
+                draining.set(false);
+            } while (!queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private boolean send(TodoChangeResource change) {
+            try {
+                if (RESET_EVENT.equals(change.getType())) {
+                    emitter.send(SseEmitter.event().id(String.valueOf(change.getSequence())).name(RESET_EVENT).data(""));
+                } else {
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(change.getSequence()))
+                            .name(change.getType())
+                            .data(change, MediaType.APPLICATION_JSON));
+                }
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                // the container reports the broken connection through onCompletion/onError
+                unsubscribe(this);
+                return false;
+            }
+        }
+    }
+}
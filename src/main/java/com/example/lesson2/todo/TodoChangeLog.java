@@ -0,0 +1,26 @@
+package com.example.lesson2.todo;
+
+/**
+ * Receives each write of the {@link InMemoryTodoRepository} before it is applied.
+ */
+interface TodoChangeLog {
+    TodoChangeLog NONE = new TodoChangeLog() {
+        @Override
+        public void appendCreate(Todo todo) {
+        }
+
+        @Override
+        public void appendFinish(long todoId, long version) {
+        }
+
+        @Override
+        public void appendDelete(long todoId) {
+        }
+    };
+
+    void appendCreate(Todo todo);
+
+    void appendFinish(long todoId, long version);
+
+    void appendDelete(long todoId);
+}
@@ -0,0 +1,19 @@
+package com.example.lesson2.todo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@link TodoServiceImpl} for every todo it creates, finishes or deletes.
+ */
+@Getter
+@AllArgsConstructor
+public class TodoChangedEvent {
+    public enum Type {
+        CREATED, FINISHED, DELETED
+    }
+
+    private final Type type;
+
+    private final Todo todo;
+}
@@ -0,0 +1,36 @@
+package com.example.lesson2.todo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * Row count and highest version of the todo table. Versions come from one sequence, so any
+ * create or finish raises {@code maxVersion} and any delete lowers {@code todoCount}.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TodoCollectionVersion implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long todoCount;
+
+    private long maxVersion;
+
+    public String toETag() {
+        return todoCount + "-" + maxVersion;
+    }
+
+    /**
+     * The ETag of one representation of the collection. A strong ETag stands for identical bytes,
+     * so every representation gets its own.
+     */
+    public String toETag(String representation) {
+        return toETag() + "-" + representation;
+    }
+}
@@ -1,49 +1,218 @@
 package com.example.lesson2.todo;
 
-import com.github.dozermapper.core.Mapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("todos")
-public class TodoController {
+@Profile("!reactive")
+public class TodoController implements InitializingBean {
+    static final int MAX_BATCH_SIZE = 1000;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    static final String MAPPER_TIMER = "todo.mapper";
+
+    private static final TypeReference<List<TodoResource>> TODO_RESOURCE_LIST = new TypeReference<List<TodoResource>>() {
+    };
 
     @Autowired
     TodoService todoService;
 
     @Autowired
-    Mapper beanMapper;
+    TodoBeanMapper beanMapper;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    TodoChangeFeed todoChangeFeed;
+
+    @Autowired
+    TodoStreamWriter todoStreamWriter;
+
+    @Autowired
+    TodoListBodyCache todoListBodyCache;
+
+    @Autowired
+    TodoOwnerResolver ownerResolver;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private Timer mapperTimer;
+
+    @Override
+    public void afterPropertiesSet() {
+        mapperTimer = Timer.builder(MAPPER_TIMER)
+                .description("Mapping of the todos of one response to resources")
+                .register(meterRegistry);
+    }
 
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getTodos(ServletWebRequest webRequest) {
+        // read before the list, so a concurrent change can only leave the ETag older than the body
+        String eTag = todoService.findCollectionVersion().toETag("json");
+        if (checkListNotModified(webRequest, eTag)) {
+            return null;
+        }
+        TodoListBodyCache.Body body = todoListBodyCache.get(eTag, this::serializeTodos,
+                () -> todoService.findCollectionVersion().toETag("json"));
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON);
+        if (body.getGzip() != null && acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.getGzip());
+        }
+        return builder.body(body.getJson());
+    }
+
+    /**
+     * Answers {@code *}{@code /*} and a request without Accept with the JSON list. Every representation below
+     * matches those equally, so without a mapping that produces anything they would be picked arbitrarily.
+     */
     @GetMapping
-    public List<TodoResource> getTodos() {
-        Collection<Todo> todos = todoService.findAll();
-        return todos.stream().map(todo -> beanMapper.map(todo, TodoResource.class))
-                .collect(Collectors.toList());
+    public ResponseEntity<byte[]> getTodosAsDefault(ServletWebRequest webRequest) {
+        return getTodos(webRequest);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getTodosAsNdjson(ServletWebRequest webRequest) {
+        if (checkListNotModified(webRequest, todoService.findCollectionVersion().toETag("ndjson"))) {
+            return null;
+        }
+        StreamingResponseBody body = outputStream -> todoStreamWriter.writeNdjson(todoService::exportAll, outputStream);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<StreamingResponseBody> getTodosAsCbor(ServletWebRequest webRequest) {
+        if (checkListNotModified(webRequest, todoService.findCollectionVersion().toETag("cbor"))) {
+            return null;
+        }
+        StreamingResponseBody body = outputStream -> todoStreamWriter.writeCbor(todoService::exportAll, outputStream);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_CBOR).body(body);
+    }
+
+    /**
+     * {@code GET /todos} picks its representation by Accept and, as all of them are compressible, its encoding
+     * by Accept-Encoding. Vary is set before the check, so that a 304 carries it as well.
+     */
+    private static boolean checkListNotModified(ServletWebRequest webRequest, String eTag) {
+        HttpServletResponse response = webRequest.getResponse();
+        if (response != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        return webRequest.checkNotModified(eTag);
+    }
+
+    @GetMapping(params = "limit")
+    public TodoPageResource getTodoPage(@RequestParam("limit") int limit,
+                                        @RequestParam(name = "after", defaultValue = "0") long after,
+                                        @RequestParam(name = "finished", required = false) Boolean finished) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Collection<Todo> todos = finished == null
+                ? todoService.findPage(after, pageSize)
+                : todoService.findPageByFinished(finished, after, pageSize);
+        List<TodoResource> todoResources = toResources(todos);
+        Long nextCursor = todoResources.size() == pageSize
+                ? todoResources.get(todoResources.size() - 1).getTodoId() : null;
+        return new TodoPageResource(todoResources, nextCursor);
+    }
+
+    @GetMapping("latest")
+    public List<TodoResource> getLatestTodos(@RequestParam(name = "finished", defaultValue = "false") boolean finished,
+                                             @RequestParam(name = "limit", defaultValue = "20") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return toResources(todoService.findLatest(finished, pageSize));
+    }
+
+    @GetMapping("search")
+    public TodoSearchResource searchTodos(@RequestParam("q") String query,
+                                          @RequestParam(name = "offset", defaultValue = "0") int offset,
+                                          @RequestParam(name = "limit", defaultValue = "20") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        int from = Math.max(0, offset);
+        List<TodoResource> todoResources = toResources(todoService.search(query, from, pageSize));
+        Integer nextOffset = todoResources.size() == pageSize ? from + pageSize : null;
+        return new TodoSearchResource(todoResources, nextOffset);
+    }
+
+    @GetMapping(path = "changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getTodoChanges(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        return todoChangeFeed.subscribe(lastEventId);
+    }
+
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> exportTodos() {
+        ObjectWriter writer = objectMapper.writerFor(TodoResource.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                todoService.exportAll(todo -> {
+                    try {
+                        writer.writeValue(generator, beanMapper.toResource(todo));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     @GetMapping("{todoId}")
-    public TodoResource getTodo(@PathVariable("todoId") Long todoId) {
+    public TodoResource getTodo(@PathVariable("todoId") Long todoId, WebRequest webRequest) {
         Todo todo = todoService.findOne(todoId);
-        return beanMapper.map(todo, TodoResource.class);
+        if (todo.getVersion() != null && webRequest.checkNotModified(String.valueOf(todo.getVersion()))) {
+            return null;
+        }
+        return toResource(todo);
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public TodoResource postTodo(@RequestBody @Validated TodoResource todoResource) {
-        Todo createdTodo = todoService.create(beanMapper.map(todoResource, Todo.class));
-        return beanMapper.map(createdTodo, TodoResource.class);
+    public TodoResource postTodo(@RequestBody @Validated TodoResource todoResource, HttpServletRequest request) {
+        Todo todo = beanMapper.toTodo(todoResource);
+        todo.setOwner(ownerResolver.resolve(request));
+        Todo createdTodo = todoService.create(todo);
+        return toResource(createdTodo);
     }
 
     @PutMapping("{todoId}")
     public TodoResource putTodo(@PathVariable("todoId") Long todoId) {
         Todo finishedTodo = todoService.finish(todoId);
-        return beanMapper.map(finishedTodo, TodoResource.class);
+        return toResource(finishedTodo);
     }
 
     @DeleteMapping("{todoId}")
@@ -52,4 +221,80 @@ public class TodoController {
         todoService.delete(todoId);
     }
 
+    @PostMapping("batch")
+    public List<TodoBatchResultResource> postTodos(@RequestBody @Validated TodoBatchResource todoBatchResource,
+                                                   HttpServletRequest request) {
+        String owner = ownerResolver.resolve(request);
+        List<Todo> todos = todoBatchResource.getTodos().stream().map(todoResource -> beanMapper.toTodo(todoResource))
+                .collect(Collectors.toList());
+        todos.forEach(todo -> todo.setOwner(owner));
+        return toBatchResultResources(todoService.createAll(todos), HttpStatus.CREATED);
+    }
+
+    @PutMapping("batch/finish")
+    public List<TodoBatchResultResource> putTodos(@RequestBody List<Long> todoIds) {
+        checkBatchSize(todoIds);
+        return toBatchResultResources(todoService.finishAll(todoIds), HttpStatus.OK);
+    }
+
+    @DeleteMapping("batch")
+    public List<TodoBatchResultResource> deleteTodos(@RequestBody List<Long> todoIds) {
+        checkBatchSize(todoIds);
+        return toBatchResultResources(todoService.deleteAll(todoIds), HttpStatus.NO_CONTENT);
+    }
+
+    private byte[] serializeTodos() {
+        List<TodoResource> todoResources = toResources(todoService.findAll());
+        try {
+            return objectMapper.writerFor(TODO_RESOURCE_LIST).writeValueAsBytes(todoResources);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private TodoResource toResource(Todo todo) {
+        return mapperTimer.record(() -> beanMapper.toResource(todo));
+    }
+
+    private List<TodoResource> toResources(Collection<Todo> todos) {
+        return mapperTimer.record(() -> todos.stream().map(todo -> beanMapper.toResource(todo))
+                .collect(Collectors.toList()));
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private void checkBatchSize(List<Long> todoIds) {
+        if (todoIds.isEmpty() || todoIds.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "The count of todoIds must be between 1 and " + MAX_BATCH_SIZE + ".");
+        }
+    }
+
+    private List<TodoBatchResultResource> toBatchResultResources(List<TodoBatchResult> results, HttpStatus okStatus) {
+        return mapperTimer.record(() -> results.stream().map(result -> {
+            switch (result.getStatus()) {
+                case OK:
+                    return new TodoBatchResultResource(result.getTodoId(), okStatus.value(), null,
+                            beanMapper.toResource(result.getTodo()));
+                case NOT_FOUND:
+                    return new TodoBatchResultResource(result.getTodoId(), HttpStatus.NOT_FOUND.value(),
+                            result.getMessage(), null);
+                default:
+                    return new TodoBatchResultResource(result.getTodoId(), HttpStatus.CONFLICT.value(),
+                            result.getMessage(), null);
+            }
+        }).collect(Collectors.toList()));
+    }
+
 }
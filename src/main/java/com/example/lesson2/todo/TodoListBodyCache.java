@@ -0,0 +1,108 @@
+package com.example.lesson2.todo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The last serialized {@code GET /todos} body, together with its gzip encoding when compression is enabled
+ * and the body reaches {@code server.compression.min-response-size}.
+ * <p>
+ * The entry is keyed by the collection ETag, so a body can only be served for the version it was read under,
+ * and it is dropped on every {@link TodoChangedEvent} so that a stale list is not kept in memory. An ETag can
+ * come back (a create followed by the delete of the created todo), so a body is only cached when neither the
+ * ETag nor this node's change count moved while it was serialized; otherwise it might hold a list the ETag
+ * never stood for.
+ */
+@Component
+public class TodoListBodyCache {
+    @Value("${todo.list-cache.enabled:true}")
+    boolean enabled;
+
+    @Value("${todo.list-cache.max-size-bytes:16777216}")
+    int maxSizeBytes;
+
+    // read from the properties, as ServerProperties is only bound in a web application
+    @Value("${server.compression.enabled:false}")
+    boolean compressionEnabled;
+
+    @Value("${server.compression.min-response-size:2KB}")
+    DataSize compressionMinResponseSize;
+
+    private final AtomicReference<Body> body = new AtomicReference<>();
+
+    private final AtomicLong changes = new AtomicLong();
+
+    /**
+     * Returns the body cached for {@code eTag}, or serializes a new one and caches it if it is small enough.
+     * {@code currentETag} is read again once the body is serialized.
+     */
+    public Body get(String eTag, Supplier<byte[]> serializer, Supplier<String> currentETag) {
+        Body cached = body.get();
+        if (cached != null && cached.getETag().equals(eTag)) {
+            return cached;
+        }
+        long changesBefore = changes.get();
+        byte[] json = serializer.get();
+        if (!enabled || json.length > maxSizeBytes) {
+            // not cached, so the server's own compression is cheaper than keeping a gzip copy
+            return new Body(eTag, json, null);
+        }
+        Body created = new Body(eTag, json, compress(json));
+        if (changes.get() == changesBefore && eTag.equals(currentETag.get())) {
+            body.set(created);
+            if (changes.get() != changesBefore) {
+                // a change committed while the body was stored
+                body.compareAndSet(created, null);
+            }
+        }
+        return created;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodoChanged(TodoChangedEvent event) {
+        changes.incrementAndGet();
+        body.set(null);
+    }
+
+    public void clear() {
+        body.set(null);
+    }
+
+    private byte[] compress(byte[] json) {
+        if (!compressionEnabled || json.length < compressionMinResponseSize.toBytes()) {
+            return null;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Body {
+        private final String eTag;
+
+        private final byte[] json;
+
+        /**
+         * {@code null} when the body is not worth compressing.
+         */
+        private final byte[] gzip;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.lesson2.todo;
+
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing map from a positive todo id to a {@link Todo}. Keys stay primitive {@code long}s,
+ * {@code 0} marks an empty slot, collisions are resolved by linear probing and removals shift the
+ * following entries back instead of leaving tombstones. Not thread-safe.
+ */
+final class TodoLongHashMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+
+    private Todo[] values;
+
+    private int mask;
+
+    private int size;
+
+    private int resizeAt;
+
+    TodoLongHashMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    Todo get(long key) {
+        for (int i = slot(key); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the previous value, or {@code null} if the key was absent
+     */
+    Todo put(long key, Todo value) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("todoId must be positive: " + key);
+        }
+        int i = slot(key);
+        for (; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                Todo previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    Todo remove(long key) {
+        for (int i = slot(key); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                Todo previous = values[i];
+                shiftBack(i);
+                size--;
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    void forEach(Consumer<Todo> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(values[i]);
+            }
+        }
+    }
+
+    private void shiftBack(int gap) {
+        for (int i = (gap + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            // an entry may move into the gap only if the gap lies between its home slot and where it sits
+            if (((i - slot(keys[i])) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Todo[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int j = slot(oldKeys[i]);
+                while (keys[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Todo[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity / 4 * 3 - 1;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.lesson2.todo;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides who owns a todo being created. The request body is never trusted for this: the owner is the
+ * authenticated principal, or the {@link #header} set by one of the {@link #trustedProxies}, or
+ * {@link Todo#DEFAULT_OWNER}.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("todo.owner")
+public class TodoOwnerResolver {
+    /**
+     * Header carrying the owner authenticated by a proxy in front of this service.
+     */
+    private String header = "X-Owner";
+
+    /**
+     * Remote addresses whose {@link #header} is believed.
+     */
+    private List<String> trustedProxies = new ArrayList<>();
+
+    public String resolve(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return principal.getName();
+        }
+        String owner = request.getHeader(header);
+        if (StringUtils.hasText(owner) && trustedProxies.contains(request.getRemoteAddr())) {
+            return owner;
+        }
+        return Todo.DEFAULT_OWNER;
+    }
+}
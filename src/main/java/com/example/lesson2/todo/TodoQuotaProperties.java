@@ -0,0 +1,29 @@
+package com.example.lesson2.todo;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("todo.quota")
+public class TodoQuotaProperties {
+    /**
+     * Unfinished todos an owner may have unless it is listed in {@link #owners}.
+     */
+    private long defaultMaxUnfinished = 5;
+
+    /**
+     * Per-owner limits, keyed by owner.
+     */
+    private Map<String, Long> owners = new HashMap<>();
+
+    public long getMaxUnfinished(String owner) {
+        return owners.getOrDefault(owner, defaultMaxUnfinished);
+    }
+}
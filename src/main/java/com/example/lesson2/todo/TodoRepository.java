@@ -1,28 +1,80 @@
 package com.example.lesson2.todo;
 
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Mapper
 public interface TodoRepository {
-    @Select("SELECT todo_id, todo_title, finished, created_at FROM todo where todo_id = #{todoId}")
+    @Select("SELECT todo_id, todo_title, finished, created_at, version, owner FROM todo where todo_id = #{todoId}")
     Optional<Todo> findById(Long todoId);
 
-    @Select("SELECT todo_id, todo_title, finished, created_at FROM todo")
+    @Select("SELECT todo_id, todo_title, finished, created_at, version, owner FROM todo")
     Collection<Todo> findAll();
 
-    @Insert("INSERT INTO todo(todo_title, finished, created_at) VALUES (#{todoTitle}, #{finished}, #{createdAt})")
-    @Options(useGeneratedKeys = true, keyProperty = "todoId")
+    @Select("SELECT todo_id, todo_title, finished, created_at, version, owner FROM todo WHERE todo_id > #{after} ORDER BY todo_id LIMIT #{limit}")
+    List<Todo> findPage(@Param("after") long after, @Param("limit") int limit);
+
+    @Select("SELECT todo_id, todo_title, finished, created_at, version, owner FROM todo WHERE finished = #{finished} AND todo_id > #{after} ORDER BY todo_id LIMIT #{limit}")
+    List<Todo> findPageByFinished(@Param("finished") boolean finished, @Param("after") long after, @Param("limit") int limit);
+
+    @Select("SELECT todo_id, todo_title, finished, created_at, version, owner FROM todo WHERE finished = #{finished} ORDER BY created_at DESC, todo_id DESC LIMIT #{limit}")
+    List<Todo> findLatestByFinished(@Param("finished") boolean finished, @Param("limit") int limit);
+
+    @Select({"<script>",
+            "SELECT todo_id, todo_title, finished, created_at, version, owner FROM todo WHERE todo_id IN",
+            "<foreach item='todoId' collection='todoIds' open='(' separator=',' close=')'>#{todoId}</foreach>",
+            "</script>"})
+    List<Todo> findAllById(@Param("todoIds") Collection<Long> todoIds);
+
+    @Select("SELECT todo_id, todo_title, finished, created_at, version, owner FROM todo ORDER BY todo_id")
+    @Options(fetchSize = 1000)
+    Cursor<Todo> findAllAsCursor();
+
+    @Insert("INSERT INTO todo(todo_title, finished, created_at, owner) VALUES (#{todoTitle}, #{finished}, #{createdAt}, #{owner})")
+    @Options(useGeneratedKeys = true, keyProperty = "todoId,version", keyColumn = "todo_id,version")
     void create(Todo todo);
 
-    @Update("UPDATE todo SET finished = true WHERE todo_id = #{todoId}")
+    @Insert("INSERT INTO todo(todo_id, todo_title, finished, created_at, owner) VALUES (#{todoId}, #{todoTitle}, #{finished}, #{createdAt}, #{owner})")
+    void createWithId(Todo todo);
+
+    @Select("SELECT NEXT VALUE FOR todo_id_seq FROM SYSTEM_RANGE(1, #{count})")
+    List<Long> allocateIds(int count);
+
+    @Update("UPDATE todo SET finished = true, version = NEXT VALUE FOR todo_version_seq WHERE todo_id = #{todoId}")
     long updateById(Long todoId);
 
+    @Update("UPDATE todo SET finished = true, version = NEXT VALUE FOR todo_version_seq WHERE todo_id = #{todoId} AND finished = false")
+    long updateUnfinishedById(Long todoId);
+
+    /**
+     * Finishes the todo if it is unfinished and returns it as updated.
+     */
+    default Optional<Todo> finishById(Long todoId) {
+        // H2 1.4.200 neither applies nor returns an UPDATE wrapped in FINAL TABLE, so the locked row is read back
+        return updateUnfinishedById(todoId) == 1 ? findById(todoId) : Optional.empty();
+    }
+
     @Delete("DELETE FROM todo where todo_id = #{todoId}")
     long deleteById(Long todoId);
 
+    @Select("SELECT todo_id, todo_title, finished, created_at, version, owner FROM OLD TABLE ("
+            + "DELETE FROM todo where todo_id = #{todoId})")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE, useCache = false)
+    Optional<Todo> deleteByIdReturning(Long todoId);
+
+    @Delete("DELETE FROM todo where todo_id = #{todoId} AND finished = #{finished}")
+    long deleteByIdAndFinished(@Param("todoId") Long todoId, @Param("finished") boolean finished);
+
     @Select("SELECT count(*) FROM todo where finished = #{finished}")
     long countByFinished(boolean finished);
+
+    @Select("SELECT count(*) FROM todo WHERE owner = #{owner} AND finished = false")
+    long countUnfinishedByOwner(String owner);
+
+    @Select("SELECT count(*) AS todo_count, COALESCE(MAX(version), 0) AS max_version FROM todo")
+    TodoCollectionVersion findCollectionVersion();
 }
@@ -1,6 +1,7 @@
 package com.example.lesson2.todo;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -30,4 +31,14 @@ public class TodoResource implements Serializable {
 
     @JsonFormat(pattern = "uuuu/MM/dd HH:mm:ss")
     private LocalDateTime createdAt;
+
+    /**
+     * Set from the request by {@link TodoOwnerResolver}; ignored when sent in a body.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String owner;
+
+    public TodoResource(Long todoId, String todoTitle, boolean finished, LocalDateTime createdAt) {
+        this(todoId, todoTitle, finished, createdAt, null);
+    }
 }
@@ -0,0 +1,397 @@
+package com.example.lesson2.todo;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over todo titles, streamed from the repository once all singletons are up and
+ * kept current by {@link TodoChangedEvent}s, so a search never scans the todo table.
+ * <p>
+ * Titles are lower-cased and split into runs of letters and digits. Runs of kanji and kana have no word
+ * boundaries, so they are indexed as overlapping bigrams plus every single character, and queried as bigrams,
+ * so a one-character query finds the character anywhere in a run. Every query term matches the terms it is a
+ * prefix of; a todo has to match all query terms and is ranked by how many of them it matches exactly, newest
+ * first within the same rank.
+ * <p>
+ * Todos deleted without a {@link TodoChangedEvent} on this node, e.g. by another node, stay in the postings
+ * until a search finds them missing and reports them through {@link #removeStale(Collection)}. From then on
+ * they are skipped before paging, and purged from the postings once enough of them have piled up.
+ */
+@Component
+public class TodoSearchIndex implements SmartInitializingSingleton {
+    private static final int MAX_STALE = 1024;
+
+    @Autowired
+    TodoRepository todoRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private final NavigableMap<String, Postings> index = new TreeMap<>();
+
+    private final Set<Long> stale = new HashSet<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        clear();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        // the cursor is bound to the transaction's SqlSession, so it has to be drained here
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Cursor<Todo> cursor = todoRepository.findAllAsCursor()) {
+                cursor.forEach(this::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodoChanged(TodoChangedEvent event) {
+        if (event.getType() == TodoChangedEvent.Type.CREATED) {
+            add(event.getTodo());
+        } else if (event.getType() == TodoChangedEvent.Type.DELETED) {
+            remove(event.getTodo());
+        }
+    }
+
+    public void add(Todo todo) {
+        List<String> terms = indexTerms(todo.getTodoTitle());
+        lock.writeLock().lock();
+        try {
+            stale.remove(todo.getTodoId());
+            for (String term : terms) {
+                index.computeIfAbsent(term, key -> new Postings()).add(todo.getTodoId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Todo todo) {
+        List<String> terms = indexTerms(todo.getTodoTitle());
+        lock.writeLock().lock();
+        try {
+            stale.remove(todo.getTodoId());
+            for (String term : terms) {
+                Postings postings = index.get(term);
+                if (postings != null && postings.remove(todo.getTodoId()) && postings.size == 0) {
+                    index.remove(term);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            stale.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks todos a search found deleted, so they no longer take up places in any page.
+     */
+    public void removeStale(Collection<Long> todoIds) {
+        lock.writeLock().lock();
+        try {
+            stale.addAll(todoIds);
+            if (stale.size() >= MAX_STALE) {
+                index.values().removeIf(postings -> postings.removeAll(stale) == 0);
+                stale.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the todos matching {@code query}, best first, skipping the first {@code offset}.
+     */
+    public List<Long> search(String query, int offset, int limit) {
+        List<String> queryTerms = terms(query);
+        if (queryTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            List<Match> matches = new ArrayList<>(queryTerms.size());
+            for (String queryTerm : queryTerms) {
+                Match match = match(queryTerm);
+                if (match.size == 0) {
+                    return Collections.emptyList();
+                }
+                matches.add(match);
+            }
+            // candidates come from the most selective term, the others only filter and score them
+            matches.sort(Comparator.comparingLong(match -> match.size));
+            long[] candidates = matches.get(0).todoIds();
+            int[] scores = new int[candidates.length];
+            int count = 0;
+            candidates:
+            for (long todoId : candidates) {
+                if (!stale.isEmpty() && stale.contains(todoId)) {
+                    continue;
+                }
+                int score = 0;
+                for (Match match : matches) {
+                    if (match.containsExactly(todoId)) {
+                        score++;
+                    } else if (!match.containsByPrefix(todoId)) {
+                        continue candidates;
+                    }
+                }
+                candidates[count] = todoId;
+                scores[count++] = score;
+            }
+            return page(candidates, scores, count, matches.size(), offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Match match(String queryTerm) {
+        Postings exact = index.get(queryTerm);
+        Collection<Postings> prefixed = index.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false).values();
+        return new Match(exact, prefixed.toArray(new Postings[0]));
+    }
+
+    /**
+     * Walks the candidates rank by rank, each rank from the highest todoId down, so no sort is needed.
+     */
+    private static List<Long> page(long[] candidates, int[] scores, int count, int maxScore, int offset, int limit) {
+        List<Long> todoIds = new ArrayList<>(Math.min(limit, count));
+        int skipped = 0;
+        for (int score = maxScore; score >= 0; score--) {
+            for (int i = count - 1; i >= 0; i--) {
+                if (scores[i] != score) {
+                    continue;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    todoIds.add(candidates[i]);
+                    if (todoIds.size() == limit) {
+                        return todoIds;
+                    }
+                }
+            }
+        }
+        return todoIds;
+    }
+
+    /**
+     * The terms of a query: words, and bigrams of kanji and kana.
+     */
+    static List<String> terms(String text) {
+        return terms(text, false);
+    }
+
+    /**
+     * The terms of an indexed title: those of {@link #terms(String)} plus every kanji and kana on its own.
+     */
+    static List<String> indexTerms(String text) {
+        return terms(text, true);
+    }
+
+    private static List<String> terms(String text, boolean unigrams) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        Set<String> terms = new LinkedHashSet<>();
+        int start = 0;
+        while (start < lowerCase.length()) {
+            int codePoint = lowerCase.codePointAt(start);
+            if (!Character.isLetterOrDigit(codePoint)) {
+                start += Character.charCount(codePoint);
+                continue;
+            }
+            boolean cjk = isCjk(codePoint);
+            int end = start;
+            while (end < lowerCase.length()) {
+                int next = lowerCase.codePointAt(end);
+                if (!Character.isLetterOrDigit(next) || isCjk(next) != cjk) {
+                    break;
+                }
+                end += Character.charCount(next);
+            }
+            String run = lowerCase.substring(start, end);
+            if (cjk) {
+                addBigrams(run, terms);
+                if (unigrams) {
+                    run.codePoints().forEach(character -> terms.add(new String(Character.toChars(character))));
+                }
+            } else {
+                terms.add(run);
+            }
+            start = end;
+        }
+        return new ArrayList<>(terms);
+    }
+
+    private static void addBigrams(String run, Set<String> terms) {
+        int second = run.offsetByCodePoints(0, 1);
+        if (second == run.length()) {
+            terms.add(run);
+            return;
+        }
+        for (int first = 0; second < run.length(); ) {
+            int third = run.offsetByCodePoints(second, 1);
+            terms.add(run.substring(first, third));
+            first = second;
+            second = third;
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        // the long vowel mark belongs to COMMON, but only ever appears inside kana
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA || codePoint == 'ー';
+    }
+
+    /**
+     * The postings of the term equal to a query term and of the longer terms it is a prefix of.
+     */
+    private static final class Match {
+        private final Postings exact;
+
+        private final Postings[] prefixed;
+
+        private final long size;
+
+        private Match(Postings exact, Postings[] prefixed) {
+            this.exact = exact;
+            this.prefixed = prefixed;
+            long size = exact == null ? 0 : exact.size;
+            for (Postings postings : prefixed) {
+                size += postings.size;
+            }
+            this.size = size;
+        }
+
+        private boolean containsExactly(long todoId) {
+            return exact != null && exact.contains(todoId);
+        }
+
+        private boolean containsByPrefix(long todoId) {
+            for (Postings postings : prefixed) {
+                if (postings.contains(todoId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * The distinct todoIds of all postings in ascending order.
+         */
+        private long[] todoIds() {
+            long[] todoIds = new long[(int) size];
+            int count = 0;
+            if (exact != null) {
+                System.arraycopy(exact.todoIds, 0, todoIds, 0, exact.size);
+                count = exact.size;
+            }
+            for (Postings postings : prefixed) {
+                System.arraycopy(postings.todoIds, 0, todoIds, count, postings.size);
+                count += postings.size;
+            }
+            if (prefixed.length == 0 || (exact == null && prefixed.length == 1)) {
+                return todoIds;
+            }
+            Arrays.sort(todoIds, 0, count);
+            int distinct = 0;
+            for (int i = 0; i < count; i++) {
+                if (distinct == 0 || todoIds[i] != todoIds[distinct - 1]) {
+                    todoIds[distinct++] = todoIds[i];
+                }
+            }
+            return Arrays.copyOf(todoIds, distinct);
+        }
+    }
+
+    /**
+     * Sorted todoIds of one term. Ids are handed out in ascending order, so an add is almost always an append.
+     */
+    private static final class Postings {
+        private long[] todoIds = new long[2];
+
+        private int size;
+
+        private void add(long todoId) {
+            int index = size;
+            if (size > 0 && todoId <= todoIds[size - 1]) {
+                index = Arrays.binarySearch(todoIds, 0, size, todoId);
+                if (index >= 0) {
+                    return;
+                }
+                index = -index - 1;
+            }
+            if (size == todoIds.length) {
+                todoIds = Arrays.copyOf(todoIds, size * 2);
+            }
+            System.arraycopy(todoIds, index, todoIds, index + 1, size - index);
+            todoIds[index] = todoId;
+            size++;
+        }
+
+        private boolean remove(long todoId) {
+            int index = Arrays.binarySearch(todoIds, 0, size, todoId);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(todoIds, index + 1, todoIds, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * Removes the given todoIds and returns the number left.
+         */
+        private int removeAll(Set<Long> removed) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!removed.contains(todoIds[i])) {
+                    todoIds[kept++] = todoIds[i];
+                }
+            }
+            size = kept;
+            return size;
+        }
+
+        private boolean contains(long todoId) {
+            return Arrays.binarySearch(todoIds, 0, size, todoId) >= 0;
+        }
+    }
+}
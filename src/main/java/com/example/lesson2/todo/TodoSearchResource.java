@@ -0,0 +1,21 @@
+package com.example.lesson2.todo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TodoSearchResource implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private List<TodoResource> todos;
+
+    private Integer nextOffset;
+}
@@ -1,15 +1,35 @@
 package com.example.lesson2.todo;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface TodoService {
     Todo findOne(Long todoId);
 
     Collection<Todo> findAll();
 
+    TodoCollectionVersion findCollectionVersion();
+
+    Collection<Todo> findPage(long after, int limit);
+
+    Collection<Todo> findPageByFinished(boolean finished, long after, int limit);
+
+    Collection<Todo> findLatest(boolean finished, int limit);
+
+    List<Todo> search(String query, int offset, int limit);
+
+    void exportAll(Consumer<Todo> consumer);
+
     Todo create(Todo todo);
 
     Todo finish(Long todoId);
 
     void delete(Long todoId);
+
+    List<TodoBatchResult> createAll(List<Todo> todos);
+
+    List<TodoBatchResult> finishAll(List<Long> todoIds);
+
+    List<TodoBatchResult> deleteAll(List<Long> todoIds);
 }
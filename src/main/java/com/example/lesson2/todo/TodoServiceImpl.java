@@ -1,41 +1,143 @@
 package com.example.lesson2.todo;
 
 import com.example.lesson2.common.exception.BusinessException;
+import com.example.lesson2.common.exception.ErrorCode;
 import com.example.lesson2.common.exception.ResourceNotFoundException;
+import io.micrometer.core.annotation.Timed;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
-import java.util.Collection;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
+@CacheConfig(cacheNames = TodoServiceImpl.TODO_CACHE, cacheResolver = "todoCacheInvalidator")
 public class TodoServiceImpl implements TodoService{
-    private  static final long MAX_UNFINISHED_COUNT = 5;
+    static final String TODO_CACHE = "todo";
+
+    static final String SERVICE_TIMER = "todo.service";
 
     @Autowired
     TodoRepository todoRepository;
 
+    @Autowired
+    TodoBatchRepository todoBatchRepository;
+
+    @Autowired
+    UnfinishedTodoCounter unfinishedTodoCounter;
+
+    @Autowired
+    TodoSearchIndex todoSearchIndex;
+
+    @Autowired
+    TodoQuotaProperties quotaProperties;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
     @Override
+    @Transactional(readOnly = true)
+    @Timed(SERVICE_TIMER)
+    @Cacheable(key = "#todoId")
     public Todo findOne(Long todoId) {
-        return todoRepository.findById(todoId).orElseThrow(() -> new ResourceNotFoundException(
-                "The requested Todo is not found. (id=" + todoId + ")"
-        ));
+        return todoRepository.findById(todoId).orElseThrow(() -> notFound(todoId));
     }
 
     @Override
+    @Transactional(readOnly = true)
+    @Timed(SERVICE_TIMER)
     public Collection<Todo> findAll() {
         return todoRepository.findAll();
     }
 
     @Override
+    @Transactional(readOnly = true)
+    @Timed(SERVICE_TIMER)
+    public TodoCollectionVersion findCollectionVersion() {
+        return todoRepository.findCollectionVersion();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(SERVICE_TIMER)
+    public Collection<Todo> findPage(long after, int limit) {
+        return todoRepository.findPage(after, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(SERVICE_TIMER)
+    public Collection<Todo> findPageByFinished(boolean finished, long after, int limit) {
+        return todoRepository.findPageByFinished(finished, after, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(SERVICE_TIMER)
+    public Collection<Todo> findLatest(boolean finished, int limit) {
+        return todoRepository.findLatestByFinished(finished, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(SERVICE_TIMER)
+    public List<Todo> search(String query, int offset, int limit) {
+        // the index only ranks ids; the rows come by primary key. Ids whose rows were deleted since are
+        // reported back, which shifts later matches up, so the page is searched again until it is full.
+        while (true) {
+            List<Long> todoIds = todoSearchIndex.search(query, offset, limit);
+            if (todoIds.isEmpty()) {
+                return Collections.emptyList();
+            }
+            Map<Long, Todo> todos = todoRepository.findAllById(todoIds).stream()
+                    .collect(Collectors.toMap(Todo::getTodoId, Function.identity()));
+            if (todos.size() == todoIds.size()) {
+                return todoIds.stream().map(todos::get).collect(Collectors.toList());
+            }
+            todoSearchIndex.removeStale(todoIds.stream().filter(todoId -> !todos.containsKey(todoId))
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(SERVICE_TIMER)
+    public void exportAll(Consumer<Todo> consumer) {
+        // the cursor is bound to the transaction's SqlSession, so it has to be drained here
+        try (Cursor<Todo> cursor = todoRepository.findAllAsCursor()) {
+            cursor.forEach(consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    @CachePut(key = "#result.todoId", unless = "#result == null || #result.todoId == null")
     public  Todo create(Todo todo) {
-        long unfinishedCount = todoRepository.countByFinished(false);
-        if (unfinishedCount >= MAX_UNFINISHED_COUNT) {
-            throw new BusinessException(
-                    "The count of un-finished Todo must not be over " + MAX_UNFINISHED_COUNT + "."
-            );
+        String owner = ownerOf(todo);
+        long maxUnfinished = quotaProperties.getMaxUnfinished(owner);
+        if (!unfinishedTodoCounter.tryReserve(owner, maxUnfinished)) {
+            throw unfinishedQuotaExceeded(maxUnfinished);
         }
 
         LocalDateTime createdAt = LocalDateTime.now();
@@ -43,27 +145,213 @@ public class TodoServiceImpl implements TodoService{
         todo.setFinished(false);
 
         todoRepository.create(todo);
+        eventPublisher.publishEvent(new TodoChangedEvent(TodoChangedEvent.Type.CREATED, todo));
         return todo;
     }
 
     @Override
+    @Timed(SERVICE_TIMER)
+    @CachePut(key = "#todoId")
     public Todo finish(Long todoId) {
-        Todo todo = findOne(todoId);
-        if(todo.isFinished()) {
-            throw new BusinessException(
-                    "the Requested Todo is already finished. (id=" + todoId + ")"
-            );
-        }
-        todo.setFinished(true);
-        todoRepository.updateById(todoId);
+        // one conditional UPDATE; the row is only read again to explain a failure
+        Todo todo = todoRepository.finishById(todoId).orElseThrow(() -> {
+            findOne(todoId);
+            return alreadyFinished(todoId);
+        });
+        unfinishedTodoCounter.release(todo.getOwner());
+        eventPublisher.publishEvent(new TodoChangedEvent(TodoChangedEvent.Type.FINISHED, todo));
         return  todo;
     }
 
     @Override
+    @Timed(SERVICE_TIMER)
+    @CacheEvict(key = "#todoId")
     public void delete(Long todoId) {
-        findOne(todoId);
-        todoRepository.deleteById(todoId);
+        Todo todo = todoRepository.deleteByIdReturning(todoId).orElseThrow(() -> notFound(todoId));
+        if (!todo.isFinished()) {
+            unfinishedTodoCounter.release(todo.getOwner());
+        }
+        eventPublisher.publishEvent(new TodoChangedEvent(TodoChangedEvent.Type.DELETED, todo));
     }
 
+    @Override
+    @Timed(SERVICE_TIMER)
+    public List<TodoBatchResult> createAll(List<Todo> todos) {
+        // one reservation per owner; within an owner the todos listed first get the free slots
+        Map<String, Integer> requested = new HashMap<>();
+        todos.forEach(todo -> requested.merge(ownerOf(todo), 1, Integer::sum));
+        Map<String, Integer> granted = new HashMap<>();
+        requested.forEach((owner, count) -> granted.put(owner,
+                unfinishedTodoCounter.tryReserve(owner, count, quotaProperties.getMaxUnfinished(owner))));
 
+        LocalDateTime createdAt = LocalDateTime.now();
+        boolean[] accepted = new boolean[todos.size()];
+        for (int i = 0; i < todos.size(); i++) {
+            Todo todo = todos.get(i);
+            int left = granted.get(todo.getOwner());
+            if (left > 0) {
+                granted.put(todo.getOwner(), left - 1);
+                accepted[i] = true;
+                todo.setCreatedAt(createdAt);
+                todo.setFinished(false);
+                todoBatchRepository.create(todo);
+            }
+        }
+        todoBatchRepository.flush();
+
+        List<TodoBatchResult> results = new ArrayList<>(todos.size());
+        for (int i = 0; i < todos.size(); i++) {
+            Todo todo = todos.get(i);
+            results.add(accepted[i]
+                    ? TodoBatchResult.ok(todo)
+                    : TodoBatchResult.conflict(null, unfinishedQuotaMessage(quotaProperties.getMaxUnfinished(todo.getOwner()))));
+        }
+        publishChanges(TodoChangedEvent.Type.CREATED, results);
+        return results;
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public List<TodoBatchResult> finishAll(List<Long> todoIds) {
+        if (todoIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Todo> todos = findAllByIdForBatch(todoIds);
+
+        TodoBatchResult[] results = new TodoBatchResult[todoIds.size()];
+        List<Integer> queued = new ArrayList<>();
+        for (int i = 0; i < todoIds.size(); i++) {
+            Long todoId = todoIds.get(i);
+            Todo todo = todos.get(todoId);
+            if (todo == null) {
+                results[i] = TodoBatchResult.notFound(todoId);
+            } else if (todo.isFinished()) {
+                results[i] = TodoBatchResult.conflict(todoId, alreadyFinishedMessage(todoId));
+            } else {
+                todoBatchRepository.updateUnfinishedById(todoId);
+                queued.add(i);
+            }
+        }
+        int[] updateCounts = todoBatchRepository.flush();
+
+        List<Long> finishedIds = new ArrayList<>(queued.size());
+        for (int j = 0; j < queued.size(); j++) {
+            if (updateCounts[j] == 1) {
+                finishedIds.add(todoIds.get(queued.get(j)));
+            }
+        }
+        // read back as updated instead of flipping the flag on the copy read before the batch
+        Map<Long, Todo> finishedTodos = finishedIds.isEmpty()
+                ? Collections.emptyMap() : findAllByIdForBatch(finishedIds);
+        Map<String, Integer> finishedByOwner = new HashMap<>();
+        for (int j = 0; j < queued.size(); j++) {
+            int i = queued.get(j);
+            Long todoId = todoIds.get(i);
+            Todo todo = finishedTodos.get(todoId);
+            if (updateCounts[j] != 1) {
+                results[i] = TodoBatchResult.conflict(todoId, alreadyFinishedMessage(todoId));
+            } else if (todo == null) {
+                results[i] = TodoBatchResult.notFound(todoId);
+            } else {
+                results[i] = TodoBatchResult.ok(todo);
+                finishedByOwner.merge(todo.getOwner(), 1, Integer::sum);
+            }
+        }
+        unfinishedTodoCounter.release(finishedByOwner);
+        evictAfterCommit(todoIds);
+        publishChanges(TodoChangedEvent.Type.FINISHED, Arrays.asList(results));
+        return Arrays.asList(results);
+    }
+
+    @Override
+    @Timed(SERVICE_TIMER)
+    public List<TodoBatchResult> deleteAll(List<Long> todoIds) {
+        if (todoIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Todo> todos = findAllByIdForBatch(todoIds);
+
+        TodoBatchResult[] results = new TodoBatchResult[todoIds.size()];
+        List<Integer> queued = new ArrayList<>();
+        for (int i = 0; i < todoIds.size(); i++) {
+            Long todoId = todoIds.get(i);
+            Todo todo = todos.get(todoId);
+            if (todo == null) {
+                results[i] = TodoBatchResult.notFound(todoId);
+            } else {
+                // only delete the row in the state we read, so the unfinished count stays exact
+                todoBatchRepository.deleteByIdAndFinished(todoId, todo.isFinished());
+                queued.add(i);
+            }
+        }
+        int[] updateCounts = todoBatchRepository.flush();
+
+        Map<String, Integer> unfinishedDeletedByOwner = new HashMap<>();
+        for (int j = 0; j < queued.size(); j++) {
+            int i = queued.get(j);
+            Long todoId = todoIds.get(i);
+            Todo todo = todos.get(todoId);
+            if (updateCounts[j] == 1) {
+                results[i] = TodoBatchResult.ok(todo);
+                if (!todo.isFinished()) {
+                    unfinishedDeletedByOwner.merge(todo.getOwner(), 1, Integer::sum);
+                }
+            } else {
+                results[i] = TodoBatchResult.notFound(todoId);
+            }
+        }
+        unfinishedTodoCounter.release(unfinishedDeletedByOwner);
+        evictAfterCommit(todoIds);
+        publishChanges(TodoChangedEvent.Type.DELETED, Arrays.asList(results));
+        return Arrays.asList(results);
+    }
+
+    private Map<Long, Todo> findAllByIdForBatch(List<Long> todoIds) {
+        return todoBatchRepository.findAllById(new LinkedHashSet<>(todoIds)).stream()
+                .collect(Collectors.toMap(Todo::getTodoId, Function.identity()));
+    }
+
+    private void evictAfterCommit(Collection<Long> todoIds) {
+        Cache cache = new TransactionAwareCacheDecorator(cacheManager.getCache(TODO_CACHE));
+        todoIds.forEach(cache::evict);
+    }
+
+    private void publishChanges(TodoChangedEvent.Type type, List<TodoBatchResult> results) {
+        results.stream().filter(result -> result.getStatus() == TodoBatchResult.Status.OK)
+                .forEach(result -> eventPublisher.publishEvent(new TodoChangedEvent(type, result.getTodo())));
+    }
+
+    /**
+     * Assigns {@link Todo#DEFAULT_OWNER} to a todo created without an owner.
+     */
+    static String ownerOf(Todo todo) {
+        if (todo.getOwner() == null) {
+            todo.setOwner(Todo.DEFAULT_OWNER);
+        }
+        return todo.getOwner();
+    }
+
+    static ResourceNotFoundException notFound(Long todoId) {
+        return new ResourceNotFoundException(ErrorCode.TODO_NOT_FOUND, todoId);
+    }
+
+    static BusinessException unfinishedQuotaExceeded(long maxUnfinished) {
+        return new BusinessException(ErrorCode.UNFINISHED_QUOTA_EXCEEDED, maxUnfinished);
+    }
+
+    static BusinessException alreadyFinished(Long todoId) {
+        return new BusinessException(ErrorCode.TODO_ALREADY_FINISHED, todoId);
+    }
+
+    static String notFoundMessage(Long todoId) {
+        return ErrorCode.TODO_NOT_FOUND.formatMessage(todoId);
+    }
+
+    static String unfinishedQuotaMessage(long maxUnfinished) {
+        return ErrorCode.UNFINISHED_QUOTA_EXCEEDED.formatMessage(maxUnfinished);
+    }
+
+    static String alreadyFinishedMessage(Long todoId) {
+        return ErrorCode.TODO_ALREADY_FINISHED.formatMessage(todoId);
+    }
 }
@@ -0,0 +1,86 @@
+package com.example.lesson2.todo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.ZoneId;
+import java.util.function.Consumer;
+
+/**
+ * Bulk formats of {@code GET /todos}: each {@link Todo} is written straight to the generator,
+ * without a {@link TodoResource} in between, and {@code createdAt} is sent as epoch millis.
+ * <ul>
+ *     <li>NDJSON: one JSON object per line.</li>
+ *     <li>CBOR: one indefinite-length array of maps.</li>
+ * </ul>
+ */
+@Component
+public class TodoStreamWriter implements InitializingBean {
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private JsonFactory jsonFactory;
+
+    private final CBORFactory cborFactory = new CBORFactory();
+
+    @Override
+    public void afterPropertiesSet() {
+        jsonFactory = objectMapper.getFactory();
+    }
+
+    public void writeNdjson(Consumer<Consumer<Todo>> todos, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(outputStream)) {
+            generator.setRootValueSeparator(null);
+            todos.accept(todo -> {
+                try {
+                    writeTodo(generator, todo);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    public void writeCbor(Consumer<Consumer<Todo>> todos, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = cborFactory.createGenerator(outputStream)) {
+            generator.writeStartArray();
+            todos.accept(todo -> {
+                try {
+                    writeTodo(generator, todo);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }
+    }
+
+    static long toEpochMillis(Todo todo) {
+        return todo.getCreatedAt().atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    private static void writeTodo(JsonGenerator generator, Todo todo) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("todoId", todo.getTodoId());
+        generator.writeStringField("todoTitle", todo.getTodoTitle());
+        generator.writeBooleanField("finished", todo.isFinished());
+        if (todo.getOwner() != null) {
+            generator.writeStringField("owner", todo.getOwner());
+        }
+        if (todo.getCreatedAt() != null) {
+            generator.writeNumberField("createdAt", toEpochMillis(todo));
+        }
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,544 @@
+package com.example.lesson2.todo;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Makes the {@link InMemoryTodoRepository} durable with an append-only log plus periodic snapshots.
+ * Requires {@code todo.repository.type=memory}.
+ * <p>
+ * The log is a series of memory-mapped segment files named after the sequence number (LSN) of their first
+ * record. A record is {@code [payload length][CRC32 of payload][type, LSN, fields]}. Replay stops at the first
+ * record that is incomplete, fails its checksum or breaks the LSN sequence, which is where a crash left the tail.
+ * <p>
+ * A snapshot is taken while writes go on: it notes the last LSN, then copies the stripes one by one, so it may
+ * already contain some later writes. Every record is idempotent (a create carries the whole todo, a finish its
+ * new version), so replaying everything after the noted LSN on top of it ends in the same state. Segments whose
+ * records are all covered by a snapshot are deleted afterwards.
+ * <p>
+ * Records are encoded by the writing thread; only handing out the LSN and copying the bytes into the segment
+ * is serialized. Records of one todo are appended under its stripe lock, so their LSNs follow the order they
+ * were applied in. Segments have to continue each other's LSNs, too: replay stops at a gap between two
+ * segments, and the segments behind it are renamed to {@code .discarded} instead of being replayed later.
+ * <p>
+ * {@code todo.wal.fsync} decides when mapped pages are forced to disk: after every record ({@code always}),
+ * every {@code fsync-interval-ms} ({@code interval}) or only when the OS writes them back ({@code none}).
+ * With {@code always}, a writer whose record a concurrent force already covered does not force again.
+ * Records reach the page cache on append in every mode, so a process crash loses nothing; only a machine
+ * crash loses the records written since the last force.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.wal.enabled", havingValue = "true")
+public class TodoWriteAheadLog implements TodoChangeLog, InitializingBean, DisposableBean {
+    public enum FsyncPolicy {
+        ALWAYS, INTERVAL, NONE
+    }
+
+    private static final byte CREATE = 1;
+
+    private static final byte FINISH = 2;
+
+    private static final byte DELETE = 3;
+
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    private static final byte HAS_CREATED_AT = 1;
+
+    private static final byte HAS_TITLE = 2;
+
+    private static final byte FINISHED = 4;
+
+    private static final byte HAS_OWNER = 8;
+
+    private static final int SNAPSHOT_MAGIC = 0x54444f53;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private static final String DISCARDED_SUFFIX = ".discarded";
+
+    @Value("${todo.wal.directory:data/wal}")
+    String directory;
+
+    @Value("${todo.wal.segment-size-bytes:67108864}")
+    int segmentSizeBytes;
+
+    @Value("${todo.wal.fsync:interval}")
+    FsyncPolicy fsync;
+
+    @Value("${todo.wal.fsync-interval-ms:100}")
+    long fsyncIntervalMillis;
+
+    @Value("${todo.wal.snapshot-interval-ms:300000}")
+    long snapshotIntervalMillis;
+
+    @Autowired
+    InMemoryTodoRepository todoRepository;
+
+    private final CRC32 crc = new CRC32();
+
+    private final Object appendLock = new Object();
+
+    private final Object forceLock = new Object();
+
+    private final Object snapshotLock = new Object();
+
+    private final ThreadLocal<ByteBuffer> scratch = ThreadLocal.withInitial(() -> ByteBuffer.allocate(256));
+
+    private Path directoryPath;
+
+    /** Guarded by {@link #appendLock}. */
+    private MappedByteBuffer segment;
+
+    /** Guarded by {@link #appendLock}. */
+    private long lastLsn;
+
+    private volatile long forcedLsn;
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        directoryPath = Paths.get(directory);
+        Files.createDirectories(directoryPath);
+        // left behind by a snapshot that did not finish
+        for (Path temporary : list(SNAPSHOT_PREFIX, TEMPORARY_SUFFIX)) {
+            Files.deleteIfExists(temporary);
+        }
+        lastLsn = loadSnapshot();
+        replaySegments(lastLsn);
+        todoRepository.setChangeLog(this);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "todo-wal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (fsync == FsyncPolicy.INTERVAL) {
+            scheduler.scheduleWithFixedDelay(this::force, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        if (snapshotIntervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    snapshot();
+                } catch (IOException | UncheckedIOException e) {
+                    // the log still has everything; the next run tries again
+                }
+            }, snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void appendCreate(Todo todo) {
+        ByteBuffer record = scratch(1 + 8 + todoBytes(todo));
+        record.put(CREATE).putLong(0);
+        putTodo(record, todo);
+        append(record);
+    }
+
+    @Override
+    public void appendFinish(long todoId, long version) {
+        ByteBuffer record = scratch(1 + 8 + 8 + 8);
+        record.put(FINISH).putLong(0).putLong(todoId).putLong(version);
+        append(record);
+    }
+
+    @Override
+    public void appendDelete(long todoId) {
+        ByteBuffer record = scratch(1 + 8 + 8);
+        record.put(DELETE).putLong(0).putLong(todoId);
+        append(record);
+    }
+
+    /**
+     * Appends an encoded record whose LSN is still a placeholder.
+     */
+    private void append(ByteBuffer record) {
+        record.flip();
+        int length = record.remaining();
+        long lsn;
+        synchronized (appendLock) {
+            lsn = lastLsn + 1;
+            if (segment.remaining() < RECORD_HEADER_BYTES + length) {
+                segment.force();
+                segment = openSegment(lsn);
+                if (segment.remaining() < RECORD_HEADER_BYTES + length) {
+                    throw new IllegalStateException("A log record of " + length + " bytes does not fit in a segment.");
+                }
+            }
+            record.putLong(1, lsn);
+            crc.reset();
+            crc.update(record.duplicate());
+            segment.putInt(length);
+            segment.putInt((int) crc.getValue());
+            segment.put(record);
+            lastLsn = lsn;
+        }
+        if (fsync == FsyncPolicy.ALWAYS && forcedLsn < lsn) {
+            synchronized (forceLock) {
+                if (forcedLsn < lsn) {
+                    force();
+                }
+            }
+        }
+    }
+
+    void force() {
+        synchronized (forceLock) {
+            long lsn;
+            MappedByteBuffer current;
+            synchronized (appendLock) {
+                lsn = lastLsn;
+                current = segment;
+            }
+            // earlier segments were forced when the log moved past them
+            current.force();
+            forcedLsn = lsn;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the repository and deletes the segments and snapshots it makes obsolete.
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long lsn;
+            synchronized (appendLock) {
+                lsn = lastLsn;
+            }
+            Path snapshotPath = directoryPath.resolve(SNAPSHOT_PREFIX + fileLsn(lsn) + SNAPSHOT_SUFFIX);
+            Path temporaryPath = directoryPath.resolve(SNAPSHOT_PREFIX + fileLsn(lsn) + TEMPORARY_SUFFIX);
+            try {
+                writeSnapshot(temporaryPath, lsn);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporaryPath);
+                throw e;
+            }
+            Files.move(temporaryPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            deleteObsoleteFiles(lsn);
+        }
+    }
+
+    private void writeSnapshot(Path temporaryPath, long lsn) throws IOException {
+        CRC32 checksum = new CRC32();
+        try (FileOutputStream file = new FileOutputStream(temporaryPath.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, checksum)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(lsn);
+            out.writeLong(todoRepository.getIdSequence());
+            out.writeLong(todoRepository.getVersionSequence());
+            ByteBuffer[] buffer = {ByteBuffer.allocate(256)};
+            todoRepository.forEachTodo(todo -> {
+                int size = todoBytes(todo);
+                if (buffer[0].capacity() < size) {
+                    buffer[0] = ByteBuffer.allocate(size);
+                }
+                buffer[0].clear();
+                putTodo(buffer[0], todo);
+                try {
+                    out.writeInt(size);
+                    out.write(buffer[0].array(), 0, size);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.writeInt(0);
+            out.flush();
+            out.writeLong(checksum.getValue());
+            out.flush();
+            file.getFD().sync();
+        }
+    }
+
+    private long loadSnapshot() throws IOException {
+        List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            try {
+                return loadSnapshot(snapshots.get(i));
+            } catch (IOException | RuntimeException e) {
+                // a damaged snapshot is skipped in favor of an older one and a longer replay
+                todoRepository.clear();
+            }
+        }
+        return 0;
+    }
+
+    private long loadSnapshot(Path path) throws IOException {
+        CRC32 checksum = new CRC32();
+        // buffered below the checksum, so it only covers what has actually been read
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path)), checksum))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a todo snapshot: " + path);
+            }
+            long lsn = in.readLong();
+            long idSequence = in.readLong();
+            long versionSequence = in.readLong();
+            byte[] bytes = new byte[256];
+            for (int size = in.readInt(); size > 0; size = in.readInt()) {
+                if (bytes.length < size) {
+                    bytes = new byte[size];
+                }
+                in.readFully(bytes, 0, size);
+                todoRepository.restore(getTodo(ByteBuffer.wrap(bytes, 0, size)));
+            }
+            long expected = checksum.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Checksum mismatch in " + path);
+            }
+            todoRepository.restoreSequences(idSequence, versionSequence);
+            return lsn;
+        }
+    }
+
+    private void replaySegments(long snapshotLsn) throws IOException {
+        List<Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        MappedByteBuffer buffer = null;
+        long segmentLastLsn = 0;
+        int replayed = 0;
+        for (Path path : segments) {
+            long firstLsn = lsnOf(path);
+            if (firstLsn > lastLsn + 1) {
+                // neither the snapshot nor the segments before cover the LSNs up to this one
+                break;
+            }
+            buffer = map(path);
+            segmentLastLsn = replay(buffer, firstLsn, snapshotLsn);
+            lastLsn = Math.max(lastLsn, segmentLastLsn);
+            replayed++;
+        }
+        for (Path path : segments.subList(replayed, segments.size())) {
+            // kept for inspection, but out of the way of the segments written from here on
+            Files.move(path, path.resolveSibling(path.getFileName() + DISCARDED_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (buffer != null && segmentLastLsn == lastLsn) {
+            // keep appending behind the last intact record; clear whatever a crash left after it
+            for (int position = buffer.position(); position < buffer.limit(); position++) {
+                buffer.put(position, (byte) 0);
+            }
+            segment = buffer;
+        } else {
+            segment = openSegment(lastLsn + 1);
+        }
+        forcedLsn = lastLsn;
+    }
+
+    /**
+     * Applies the records of one segment that come after {@code snapshotLsn} and leaves the buffer positioned
+     * behind the last intact record.
+     *
+     * @return the LSN of the last intact record
+     */
+    private long replay(ByteBuffer buffer, long firstLsn, long snapshotLsn) {
+        long expectedLsn = firstLsn;
+        while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            byte type = payload.get();
+            long lsn = payload.getLong();
+            if ((int) crc.getValue() != checksum || lsn != expectedLsn || type < CREATE || type > DELETE) {
+                buffer.position(start);
+                break;
+            }
+            if (lsn > snapshotLsn) {
+                if (type == CREATE) {
+                    todoRepository.restore(getTodo(payload));
+                } else if (type == FINISH) {
+                    todoRepository.restoreFinish(payload.getLong(), payload.getLong());
+                } else {
+                    todoRepository.restoreDelete(payload.getLong());
+                }
+            }
+            buffer.position(start + RECORD_HEADER_BYTES + length);
+            expectedLsn++;
+        }
+        return expectedLsn - 1;
+    }
+
+    private void deleteObsoleteFiles(long snapshotLsn) throws IOException {
+        List<Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (lsnOf(segments.get(i + 1)) <= snapshotLsn + 1) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+        for (Path snapshot : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (lsnOf(snapshot) < snapshotLsn) {
+                Files.deleteIfExists(snapshot);
+            }
+        }
+        for (Path temporary : list(SNAPSHOT_PREFIX, TEMPORARY_SUFFIX)) {
+            if (lsnOf(temporary) < snapshotLsn) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    private MappedByteBuffer openSegment(long firstLsn) {
+        try {
+            return map(directoryPath.resolve(SEGMENT_PREFIX + fileLsn(firstLsn) + SEGMENT_SUFFIX));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), segmentSizeBytes));
+        }
+    }
+
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        try (Stream<Path> paths = Files.list(directoryPath)) {
+            return paths.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(suffix);
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static String fileLsn(long lsn) {
+        return String.format("%020d", lsn);
+    }
+
+    private static long lsnOf(Path path) {
+        String name = path.getFileName().toString();
+        int start = name.indexOf('-') + 1;
+        return Long.parseLong(name.substring(start, name.indexOf('.', start)));
+    }
+
+    private ByteBuffer scratch(int size) {
+        ByteBuffer buffer = scratch.get();
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+            scratch.set(buffer);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private static int todoBytes(Todo todo) {
+        int size = 8 + 8 + 1;
+        if (todo.getCreatedAt() != null) {
+            size += 8 + 4;
+        }
+        if (todo.getTodoTitle() != null) {
+            size += 4 + todo.getTodoTitle().getBytes(StandardCharsets.UTF_8).length;
+        }
+        if (todo.getOwner() != null) {
+            size += 4 + todo.getOwner().getBytes(StandardCharsets.UTF_8).length;
+        }
+        return size;
+    }
+
+    private static void putTodo(ByteBuffer buffer, Todo todo) {
+        byte flags = 0;
+        if (todo.getCreatedAt() != null) {
+            flags |= HAS_CREATED_AT;
+        }
+        if (todo.getTodoTitle() != null) {
+            flags |= HAS_TITLE;
+        }
+        if (todo.isFinished()) {
+            flags |= FINISHED;
+        }
+        if (todo.getOwner() != null) {
+            flags |= HAS_OWNER;
+        }
+        buffer.putLong(todo.getTodoId());
+        buffer.putLong(todo.getVersion() == null ? 0 : todo.getVersion());
+        buffer.put(flags);
+        if (todo.getCreatedAt() != null) {
+            buffer.putLong(todo.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(todo.getCreatedAt().getNano());
+        }
+        if (todo.getTodoTitle() != null) {
+            byte[] title = todo.getTodoTitle().getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(title.length);
+            buffer.put(title);
+        }
+        if (todo.getOwner() != null) {
+            byte[] owner = todo.getOwner().getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(owner.length);
+            buffer.put(owner);
+        }
+    }
+
+    private static Todo getTodo(ByteBuffer buffer) {
+        long todoId = buffer.getLong();
+        long version = buffer.getLong();
+        byte flags = buffer.get();
+        LocalDateTime createdAt = null;
+        if ((flags & HAS_CREATED_AT) != 0) {
+            createdAt = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        }
+        String todoTitle = null;
+        if ((flags & HAS_TITLE) != 0) {
+            byte[] title = new byte[buffer.getInt()];
+            buffer.get(title);
+            todoTitle = new String(title, StandardCharsets.UTF_8);
+        }
+        // records written before owners existed belong to the default owner
+        String owner = Todo.DEFAULT_OWNER;
+        if ((flags & HAS_OWNER) != 0) {
+            byte[] ownerBytes = new byte[buffer.getInt()];
+            buffer.get(ownerBytes);
+            owner = new String(ownerBytes, StandardCharsets.UTF_8);
+        }
+        return new Todo(todoId, todoTitle, (flags & FINISHED) != 0, createdAt, version, owner);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        scheduler.shutdownNow();
+        if (snapshotIntervalMillis > 0) {
+            snapshot();
+        }
+        force();
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.lesson2.todo;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Queues new todos and inserts them from one flusher thread, one transaction per batch.
+ * <p>
+ * Ids are handed out when a todo is queued, from blocks of {@code todo_id_seq} values, so callers
+ * know the id before the row exists. A batch is committed once it holds {@code max-batch-size}
+ * todos or {@code flush-interval-ms} after its first todo arrived. With {@link Ack#FLUSH} the caller
+ * waits for that commit; with {@link Ack#ENQUEUE} it returns at once and a crash loses the queue.
+ * A todo's unfinished slot is reserved before it is queued, so a todo over its owner's quota is rejected
+ * before either ack. When a batch fails, or a queued todo is never written, its slot is released.
+ * <p>
+ * Once stopped, the buffer rejects new todos, flushes the queued ones and fails whatever the flusher could not
+ * take, so no caller waits on a todo that will never be written.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.write-behind.enabled", havingValue = "true")
+public class TodoWriteBehindBuffer implements InitializingBean, DisposableBean {
+    public enum Ack {
+        ENQUEUE, FLUSH
+    }
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    @Value("${todo.write-behind.flush-interval-ms:10}")
+    long flushIntervalMillis;
+
+    @Value("${todo.write-behind.max-batch-size:500}")
+    int maxBatchSize;
+
+    @Value("${todo.write-behind.id-block-size:100}")
+    int idBlockSize;
+
+    @Value("${todo.write-behind.ack:flush}")
+    Ack ack;
+
+    @Autowired
+    TodoRepository todoRepository;
+
+    @Autowired
+    TodoBatchRepository todoBatchRepository;
+
+    @Autowired
+    UnfinishedTodoCounter unfinishedTodoCounter;
+
+    @Autowired
+    TodoQuotaProperties quotaProperties;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private final BlockingQueue<PendingTodo> queue = new LinkedBlockingQueue<>();
+
+    private final Deque<Long> idBlock = new ArrayDeque<>();
+
+    /** Queueing holds the read lock, stopping the write lock, so nothing is queued after the buffer stopped. */
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    private TransactionTemplate transactionTemplate;
+
+    private Thread flusher;
+
+    /** Only cleared under the write lock of {@link #stateLock}. */
+    private volatile boolean running;
+
+    @Override
+    public void afterPropertiesSet() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        flusher = new Thread(this::runFlusher, "todo-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Reserves the todo's unfinished slot, assigns an id to the todo and queues it.
+     */
+    public Todo enqueue(Todo todo) {
+        String owner = todo.getOwner();
+        long maxUnfinished = quotaProperties.getMaxUnfinished(owner);
+        if (!unfinishedTodoCounter.tryReserve(owner, maxUnfinished)) {
+            throw TodoServiceImpl.unfinishedQuotaExceeded(maxUnfinished);
+        }
+        PendingTodo pending = new PendingTodo(todo);
+        stateLock.readLock().lock();
+        try {
+            if (!running) {
+                throw stopped();
+            }
+            todo.setTodoId(nextId());
+            queue.add(pending);
+        } catch (RuntimeException e) {
+            unfinishedTodoCounter.release(owner);
+            throw e;
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        if (ack == Ack.ENQUEUE) {
+            return todo;
+        }
+        try {
+            return pending.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private synchronized Long nextId() {
+        if (idBlock.isEmpty()) {
+            idBlock.addAll(todoRepository.allocateIds(idBlockSize));
+        }
+        return idBlock.poll();
+    }
+
+    private void runFlusher() {
+        List<PendingTodo> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingTodo first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingTodo next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                stop();
+                failQueued();
+                return;
+            }
+        }
+    }
+
+    private void flush(List<PendingTodo> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                batch.forEach(pending -> todoBatchRepository.createWithId(pending.todo));
+                todoBatchRepository.flush();
+                batch.forEach(pending -> eventPublisher.publishEvent(
+                        new TodoChangedEvent(TodoChangedEvent.Type.CREATED, pending.todo)));
+            });
+            batch.forEach(pending -> pending.future.complete(pending.todo));
+        } catch (RuntimeException e) {
+            Map<String, Integer> reservedByOwner = new HashMap<>();
+            batch.forEach(pending -> reservedByOwner.merge(pending.todo.getOwner(), 1, Integer::sum));
+            unfinishedTodoCounter.release(reservedByOwner);
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // stop taking todos, then let the flusher drain what is already queued
+        stop();
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        failQueued();
+    }
+
+    private void stop() {
+        stateLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    private void failQueued() {
+        PendingTodo pending;
+        while ((pending = queue.poll()) != null) {
+            unfinishedTodoCounter.release(pending.todo.getOwner());
+            pending.future.completeExceptionally(stopped());
+        }
+    }
+
+    private static IllegalStateException stopped() {
+        return new IllegalStateException("The write-behind buffer is stopped.");
+    }
+
+    private static final class PendingTodo {
+        private final Todo todo;
+
+        private final CompletableFuture<Todo> future = new CompletableFuture<>();
+
+        private PendingTodo(Todo todo) {
+            this.todo = todo;
+        }
+    }
+}
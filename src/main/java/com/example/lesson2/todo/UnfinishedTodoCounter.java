@@ -0,0 +1,115 @@
+package com.example.lesson2.todo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory count of unfinished todos per owner. An owner's counter is seeded from the database the first
+ * time the owner reserves a slot; after that the quota check never touches the database and reservations
+ * of different owners never contend.
+ * <p>
+ * A slot is reserved before the insert and handed back if the transaction rolls back.
+ * Slots freed by finish/delete are only returned after commit, so a count may be
+ * briefly high but never lower than the committed state.
+ * <p>
+ * The counts are per node: a node does not see the todos other nodes create, finish or delete. Enforcing
+ * one quota across nodes would need the database to hold the reservations instead.
+ */
+@Component
+public class UnfinishedTodoCounter {
+    private final ConcurrentHashMap<String, AtomicLong> counts = new ConcurrentHashMap<>();
+
+    @Autowired
+    TodoRepository todoRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    public long get(String owner) {
+        return counter(owner).get();
+    }
+
+    public boolean tryReserve(String owner, long max) {
+        return tryReserve(owner, 1, max) == 1;
+    }
+
+    /**
+     * Reserves up to {@code requested} slots of {@code owner} without going over {@code max}.
+     *
+     * @return the number of slots actually reserved
+     */
+    public int tryReserve(String owner, int requested, long max) {
+        AtomicLong count = counter(owner);
+        long current;
+        int granted;
+        do {
+            current = count.get();
+            granted = (int) Math.min(requested, max - current);
+            if (granted <= 0) {
+                return 0;
+            }
+        } while (!count.compareAndSet(current, current + granted));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            int reserved = granted;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        count.addAndGet(-reserved);
+                    }
+                }
+            });
+        }
+        return granted;
+    }
+
+    public void release(String owner) {
+        release(owner, 1);
+    }
+
+    public void release(String owner, int released) {
+        // an owner without a counter is seeded from the committed state later, which already leaves these out
+        AtomicLong count = counts.get(owner);
+        if (count == null || released <= 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    count.addAndGet(-released);
+                }
+            });
+        } else {
+            count.addAndGet(-released);
+        }
+    }
+
+    public void release(Map<String, Integer> releasedByOwner) {
+        releasedByOwner.forEach(this::release);
+    }
+
+    private AtomicLong counter(String owner) {
+        AtomicLong count = counts.get(owner);
+        if (count != null) {
+            return count;
+        }
+        // counted outside the caller's transaction, which may already be bound to a batch executor
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        Long unfinished = transactionTemplate.execute(status -> todoRepository.countUnfinishedByOwner(owner));
+        AtomicLong seeded = new AtomicLong(unfinished);
+        AtomicLong concurrent = counts.putIfAbsent(owner, seeded);
+        return concurrent != null ? concurrent : seeded;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.lesson2.todo;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link TodoService} whose {@link #create(Todo)} goes through the {@link TodoWriteBehindBuffer}
+ * instead of committing a transaction per todo. Everything else is served by {@link TodoServiceImpl}.
+ * <p>
+ * Not transactional on purpose: a caller waiting for its batch must not hold a connection.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "todo.write-behind.enabled", havingValue = "true")
+public class WriteBehindTodoService implements TodoService {
+    @Autowired
+    TodoServiceImpl todoService;
+
+    @Autowired
+    TodoWriteBehindBuffer todoWriteBehindBuffer;
+
+    @Override
+    public Todo findOne(Long todoId) {
+        return todoService.findOne(todoId);
+    }
+
+    @Override
+    public Collection<Todo> findAll() {
+        return todoService.findAll();
+    }
+
+    @Override
+    public TodoCollectionVersion findCollectionVersion() {
+        return todoService.findCollectionVersion();
+    }
+
+    @Override
+    public Collection<Todo> findPage(long after, int limit) {
+        return todoService.findPage(after, limit);
+    }
+
+    @Override
+    public Collection<Todo> findPageByFinished(boolean finished, long after, int limit) {
+        return todoService.findPageByFinished(finished, after, limit);
+    }
+
+    @Override
+    public Collection<Todo> findLatest(boolean finished, int limit) {
+        return todoService.findLatest(finished, limit);
+    }
+
+    @Override
+    public List<Todo> search(String query, int offset, int limit) {
+        return todoService.search(query, offset, limit);
+    }
+
+    @Override
+    public void exportAll(Consumer<Todo> consumer) {
+        todoService.exportAll(consumer);
+    }
+
+    @Override
+    @Timed(TodoServiceImpl.SERVICE_TIMER)
+    public Todo create(Todo todo) {
+        TodoServiceImpl.ownerOf(todo);
+        todo.setCreatedAt(LocalDateTime.now());
+        todo.setFinished(false);
+        return todoWriteBehindBuffer.enqueue(todo);
+    }
+
+    @Override
+    public Todo finish(Long todoId) {
+        return todoService.finish(todoId);
+    }
+
+    @Override
+    public void delete(Long todoId) {
+        todoService.delete(todoId);
+    }
+
+    @Override
+    public List<TodoBatchResult> createAll(List<Todo> todos) {
+        return todoService.createAll(todos);
+    }
+
+    @Override
+    public List<TodoBatchResult> finishAll(List<Long> todoIds) {
+        return todoService.finishAll(todoIds);
+    }
+
+    @Override
+    public List<TodoBatchResult> deleteAll(List<Long> todoIds) {
+        return todoService.deleteAll(todoIds);
+    }
+}
@@ -1,6 +1,20 @@
+CREATE SEQUENCE IF NOT EXISTS todo_id_seq;
+
+CREATE SEQUENCE IF NOT EXISTS todo_version_seq;
+
 CREATE TABLE IF NOT EXISTS todo (
-    todo_id BIGINT IDENTITY PRIMARY KEY,
+    todo_id BIGINT DEFAULT NEXT VALUE FOR todo_id_seq PRIMARY KEY,
     todo_title VARCHAR(30),
     finished BOOLEAN,
-    created_at TIMESTAMP
-);
\ No newline at end of file
+    created_at TIMESTAMP,
+    version BIGINT DEFAULT NEXT VALUE FOR todo_version_seq NOT NULL,
+    owner VARCHAR(64) DEFAULT 'default' NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_todo_finished ON todo (finished);
+
+CREATE INDEX IF NOT EXISTS idx_todo_finished_created_at ON todo (finished, created_at, todo_id);
+
+CREATE INDEX IF NOT EXISTS idx_todo_version ON todo (version);
+
+CREATE INDEX IF NOT EXISTS idx_todo_owner_finished ON todo (owner, finished);
@@ -0,0 +1,96 @@
+package com.example.lesson2.todo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+public class ReactiveTodoControllerTest {
+    private static final DateTimeFormatter DATETIME_FORMAT = DateTimeFormatter.ofPattern("uuuu/MM/dd HH:mm:ss");
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TodoSearchIndex todoSearchIndex;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    @DisplayName("GET Todoが正常に動作することを確認する(Reactive)")
+    void testGetTodo() {
+        TodoResource actualTodoResource = webTestClient.get().uri("/todos/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TodoResource.class)
+                .returnResult().getResponseBody();
+
+        assertThat(actualTodoResource)
+                .extracting(TodoResource::getTodoId, TodoResource::getTodoTitle, TodoResource::isFinished, TodoResource::getCreatedAt)
+                .containsExactly(1L, "sample 1", false, LocalDateTime.parse("2021/10/11 01:01:01", DATETIME_FORMAT));
+    }
+
+    @Test
+    @DisplayName("存在しないTodoのGETが404になることを確認する(Reactive)")
+    void testGetTodoNotFound() {
+        webTestClient.get().uri("/todos/999")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("完了済みTodoのPUTが409になることを確認する(Reactive)")
+    void testPutFinishedTodo() {
+        webTestClient.put().uri("/todos/2")
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    @DisplayName("PUT・DELETEしたTodoがキャッシュから取り除かれ、検索索引にも変更が届くことを確認する(Reactive)")
+    void testPutTodoPublishesChange() {
+        todoService.findOne(3L);
+
+        webTestClient.put().uri("/todos/3")
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.delete().uri("/todos/3")
+                .exchange()
+                .expectStatus().is2xxSuccessful();
+
+        assertThat(cacheManager.getCache(TodoServiceImpl.TODO_CACHE).get(3L)).isNull();
+        assertThat(todoSearchIndex.search("sample 3", 0, 10)).doesNotContain(3L);
+    }
+
+    @Test
+    @DisplayName("POST Todoが正常に動作することを確認する(Reactive)")
+    void testPostTodo() {
+        TodoResource inputTodoResource = new TodoResource();
+        inputTodoResource.setTodoTitle("sample todo 4");
+
+        TodoResource actualTodoResource = webTestClient.post().uri("/todos")
+                .bodyValue(inputTodoResource)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(TodoResource.class)
+                .returnResult().getResponseBody();
+
+        assertThat(actualTodoResource.getTodoId()).isNotNull();
+        assertThat(actualTodoResource.getTodoTitle()).isEqualTo("sample todo 4");
+        assertThat(actualTodoResource.isFinished()).isFalse();
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.lesson2.todo;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Declares both transaction managers, since the auto-configured ones back off from each other.
+ * {@code @Transactional} keeps resolving to JDBC; the reactive service uses R2DBC through a
+ * {@link org.springframework.transaction.reactive.TransactionalOperator}.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("reactive")
+public class ReactiveTodoConfig {
+
+    @Bean
+    @Primary
+    public DataSourceTransactionManager transactionManager(DataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
+    }
+
+    @Bean
+    public R2dbcTransactionManager reactiveTransactionManager(ConnectionFactory connectionFactory) {
+        return new R2dbcTransactionManager(connectionFactory);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.lesson2.todo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Same URL contract as {@link TodoController} on WebFlux, enabled with the {@code reactive} profile.
+ */
+@RestController
+@RequestMapping("todos")
+@Profile("reactive")
+public class ReactiveTodoController {
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    @Autowired
+    ReactiveTodoService todoService;
+
+    @Autowired
+    TodoBeanMapper beanMapper;
+
+    @GetMapping
+    public Flux<TodoResource> getTodos() {
+        return todoService.findAll().map(todo -> beanMapper.toResource(todo));
+    }
+
+    @GetMapping(params = "limit")
+    public Mono<TodoPageResource> getTodoPage(@RequestParam("limit") int limit,
+                                              @RequestParam(name = "after", defaultValue = "0") long after) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return todoService.findPage(after, pageSize).map(todo -> beanMapper.toResource(todo))
+                .collectList()
+                .map(todoResources -> new TodoPageResource(todoResources, todoResources.size() == pageSize
+                        ? todoResources.get(todoResources.size() - 1).getTodoId() : null));
+    }
+
+    @GetMapping("export")
+    public Flux<TodoResource> exportTodos() {
+        return getTodos();
+    }
+
+    @GetMapping("{todoId}")
+    public Mono<TodoResource> getTodo(@PathVariable("todoId") Long todoId) {
+        return todoService.findOne(todoId).map(todo -> beanMapper.toResource(todo));
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<TodoResource> postTodo(@RequestBody @Validated TodoResource todoResource) {
+        return todoService.create(beanMapper.toTodo(todoResource)).map(todo -> beanMapper.toResource(todo));
+    }
+
+    @PutMapping("{todoId}")
+    public Mono<TodoResource> putTodo(@PathVariable("todoId") Long todoId) {
+        return todoService.finish(todoId).map(todo -> beanMapper.toResource(todo));
+    }
+
+    @DeleteMapping("{todoId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteTodo(@PathVariable("todoId") Long todoId) {
+        return todoService.delete(todoId);
+    }
+}
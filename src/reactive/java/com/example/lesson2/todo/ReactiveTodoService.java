@@ -0,0 +1,18 @@
+package com.example.lesson2.todo;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveTodoService {
+    Mono<Todo> findOne(Long todoId);
+
+    Flux<Todo> findAll();
+
+    Flux<Todo> findPage(long after, int limit);
+
+    Mono<Todo> create(Todo todo);
+
+    Mono<Todo> finish(Long todoId);
+
+    Mono<Void> delete(Long todoId);
+}
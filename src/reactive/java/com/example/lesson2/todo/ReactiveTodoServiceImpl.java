@@ -0,0 +1,159 @@
+package com.example.lesson2.todo;
+
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+
+/**
+ * R2DBC implementation of the same business rules as {@link TodoServiceImpl}.
+ * The unfinished quota is shared through {@link UnfinishedTodoCounter}.
+ * After a change commits, the todo is evicted from the {@code todo} cache and a {@link TodoChangedEvent} is
+ * published; as no JDBC transaction is bound, its listeners handle it right away.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveTodoServiceImpl implements ReactiveTodoService {
+    private static final String SELECT_TODO = "SELECT todo_id, todo_title, finished, created_at, version, owner FROM todo";
+
+    @Autowired
+    DatabaseClient databaseClient;
+
+    @Autowired
+    TransactionalOperator transactionalOperator;
+
+    @Autowired
+    UnfinishedTodoCounter unfinishedTodoCounter;
+
+    @Autowired
+    TodoQuotaProperties quotaProperties;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public Mono<Todo> findOne(Long todoId) {
+        return databaseClient.sql(SELECT_TODO + " WHERE todo_id = :todoId")
+                .bind("todoId", todoId)
+                .map(ReactiveTodoServiceImpl::toTodo)
+                .one()
+                .switchIfEmpty(Mono.error(() -> TodoServiceImpl.notFound(todoId)));
+    }
+
+    @Override
+    public Flux<Todo> findAll() {
+        return databaseClient.sql(SELECT_TODO)
+                .map(ReactiveTodoServiceImpl::toTodo)
+                .all();
+    }
+
+    @Override
+    public Flux<Todo> findPage(long after, int limit) {
+        return databaseClient.sql(SELECT_TODO + " WHERE todo_id > :after ORDER BY todo_id LIMIT :limit")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveTodoServiceImpl::toTodo)
+                .all();
+    }
+
+    @Override
+    public Mono<Todo> create(Todo todo) {
+        return Mono.defer(() -> {
+            String owner = TodoServiceImpl.ownerOf(todo);
+            long maxUnfinished = quotaProperties.getMaxUnfinished(owner);
+            todo.setCreatedAt(LocalDateTime.now());
+            todo.setFinished(false);
+
+            // the first reservation of an owner counts its todos over JDBC
+            return Mono.fromCallable(() -> unfinishedTodoCounter.tryReserve(owner, maxUnfinished))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(reserved -> reserved
+                            ? insert(todo, owner)
+                                    .as(transactionalOperator::transactional)
+                                    .doOnError(e -> unfinishedTodoCounter.release(owner))
+                            : Mono.error(TodoServiceImpl.unfinishedQuotaExceeded(maxUnfinished)))
+                    .doOnSuccess(created -> changed(TodoChangedEvent.Type.CREATED, created));
+        });
+    }
+
+    private Mono<Todo> insert(Todo todo, String owner) {
+        return databaseClient.sql("INSERT INTO todo(todo_title, finished, created_at, owner) VALUES (:todoTitle, :finished, :createdAt, :owner)")
+                .bind("todoTitle", todo.getTodoTitle())
+                .bind("finished", todo.isFinished())
+                .bind("createdAt", todo.getCreatedAt())
+                .bind("owner", owner)
+                .filter(statement -> statement.returnGeneratedValues("todo_id", "version"))
+                .map(row -> {
+                    todo.setTodoId(row.get("todo_id", Long.class));
+                    todo.setVersion(row.get("version", Long.class));
+                    return todo;
+                })
+                .one();
+    }
+
+    @Override
+    public Mono<Todo> finish(Long todoId) {
+        // see TodoRepository#finishById for why the row is read back instead of taken from FINAL TABLE
+        return databaseClient.sql("UPDATE todo SET finished = true, version = NEXT VALUE FOR todo_version_seq "
+                        + "WHERE todo_id = :todoId AND finished = false")
+                .bind("todoId", todoId)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(updated -> updated == 1 ? findOne(todoId)
+                        : findOne(todoId).flatMap(todo -> Mono.<Todo>error(TodoServiceImpl.alreadyFinished(todoId))))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(todo -> {
+                    unfinishedTodoCounter.release(todo.getOwner());
+                    changed(TodoChangedEvent.Type.FINISHED, todo);
+                });
+    }
+
+    @Override
+    public Mono<Void> delete(Long todoId) {
+        return databaseClient.sql("SELECT todo_id, todo_title, finished, created_at, version, owner FROM OLD TABLE ("
+                        + "DELETE FROM todo where todo_id = :todoId)")
+                .bind("todoId", todoId)
+                .map(ReactiveTodoServiceImpl::toTodo)
+                .one()
+                .switchIfEmpty(Mono.error(() -> TodoServiceImpl.notFound(todoId)))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(todo -> {
+                    if (!todo.isFinished()) {
+                        unfinishedTodoCounter.release(todo.getOwner());
+                    }
+                    changed(TodoChangedEvent.Type.DELETED, todo);
+                })
+                .then();
+    }
+
+    private void changed(TodoChangedEvent.Type type, Todo todo) {
+        Cache cache = cacheManager.getCache(TodoServiceImpl.TODO_CACHE);
+        if (cache != null) {
+            cache.evict(todo.getTodoId());
+        }
+        eventPublisher.publishEvent(new TodoChangedEvent(type, todo));
+    }
+
+    private static Todo toTodo(Row row) {
+        return new Todo(
+                row.get("todo_id", Long.class),
+                row.get("todo_title", String.class),
+                Boolean.TRUE.equals(row.get("finished", Boolean.class)),
+                row.get("created_at", LocalDateTime.class),
+                row.get("version", Long.class),
+                row.get("owner", String.class));
+    }
+}
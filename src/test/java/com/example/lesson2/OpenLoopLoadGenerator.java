@@ -0,0 +1,104 @@
+package com.example.lesson2;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntPredicate;
+import java.util.function.LongFunction;
+
+/**
+ * Sends requests at a fixed arrival rate no matter how fast responses come back, and measures each latency
+ * from the moment the request was due rather than from when it was actually sent. A server that stalls
+ * therefore shows up in the tail instead of silently lowering the request rate (coordinated omission).
+ */
+final class OpenLoopLoadGenerator {
+    private OpenLoopLoadGenerator() {
+    }
+
+    /**
+     * @param operation sends the {@code n}-th request and completes with its status code
+     * @param expected  status codes that count as a correct answer, including expected rejections
+     */
+    static Result run(int ratePerSecond, Duration duration, LongFunction<CompletableFuture<Integer>> operation,
+                      IntPredicate expected) {
+        Histogram histogram = new ConcurrentHistogram(3);
+        AtomicLong errors = new AtomicLong();
+        long count = ratePerSecond * duration.getSeconds();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        List<CompletableFuture<?>> futures = new ArrayList<>((int) count);
+
+        long start = System.nanoTime();
+        for (long i = 0; i < count; i++) {
+            long intendedStart = start + i * intervalNanos;
+            long delay;
+            while ((delay = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            CompletableFuture<Integer> future;
+            try {
+                future = operation.apply(i);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            futures.add(future.whenComplete((status, e) -> {
+                histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart));
+                if (e != null || !expected.test(status)) {
+                    errors.incrementAndGet();
+                }
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+        return new Result(histogram, count, errors.get(), System.nanoTime() - start);
+    }
+
+    static final class Result {
+        private final Histogram histogram;
+
+        private final long requests;
+
+        private final long errors;
+
+        private final long elapsedNanos;
+
+        private Result(Histogram histogram, long requests, long errors, long elapsedNanos) {
+            this.histogram = histogram;
+            this.requests = requests;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        double percentileMillis(double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1000.0;
+        }
+
+        double errorRate() {
+            return requests == 0 ? 0.0 : (double) errors / requests;
+        }
+
+        /**
+         * Prints a summary and writes the full distribution to {@code <directory>/<name>.hgrm},
+         * which HdrHistogram's plotter reads.
+         */
+        void report(String name, Path directory) throws IOException {
+            System.out.printf("%-12s %8d req %8.0f req/s  p50 %8.2f ms  p99 %8.2f ms  p99.9 %8.2f ms  max %8.2f ms  errors %d%n",
+                    name, requests, requests / (elapsedNanos / 1e9), percentileMillis(50), percentileMillis(99),
+                    percentileMillis(99.9), histogram.getMaxValue() / 1000.0, errors);
+            Files.createDirectories(directory);
+            try (PrintStream out = new PrintStream(new FileOutputStream(directory.resolve(name + ".hgrm").toFile()))) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.lesson2;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+import java.util.function.LongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Latency SLO suite for the REST API, driven by {@link OpenLoopLoadGenerator}. Excluded from the default build;
+ * run it with {@code mvn -Pload-test test}. Rates, durations and p99 limits can be overridden with
+ * {@code -Dload.<workload>.rate}, {@code -Dload.<workload>.p99-ms}, {@code -Dload.duration-seconds} and
+ * {@code -Dload.warmup-seconds}. Histograms are written to {@code target/load-test}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:load-test;DB_CLOSE_DELAY=-1",
+        "logging.level.root=WARN",
+        // the generator is a single client, so the per-client limit would reject most of it
+        "lesson2.rate-limit.enabled=false"
+})
+public class TodoLoadTest {
+    private static final Path REPORT_DIRECTORY = Paths.get("target", "load-test");
+
+    private static final Pattern TODO_ID = Pattern.compile("\"todoId\":(\\d+)");
+
+    private static final int SEEDED_TODOS = 10_000;
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @BeforeAll
+    static void seed(@Autowired JdbcTemplate jdbcTemplate) {
+        // finished, so the unfinished quota stays free for the write workloads
+        LocalDateTime createdAt = LocalDateTime.of(2021, 10, 11, 0, 0);
+        List<Object[]> args = new ArrayList<>(SEEDED_TODOS);
+        for (int i = 0; i < SEEDED_TODOS; i++) {
+            args.add(new Object[]{"load " + i, true, Timestamp.valueOf(createdAt.plusSeconds(i))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO todo(todo_title, finished, created_at) VALUES (?, ?, ?)", args);
+    }
+
+    @Test
+    @DisplayName("読み取り中心の負荷でp99がSLO以内に収まることを確認する")
+    void testReadHeavy() throws IOException {
+        run("read-heavy", 400, 50, n -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextInt(10) < 7) {
+                return send(get("/todos/" + (1 + random.nextInt(SEEDED_TODOS))));
+            }
+            return send(get("/todos?limit=20&after=" + random.nextInt(SEEDED_TODOS)));
+        }, status -> status == 200);
+    }
+
+    @Test
+    @DisplayName("未完了の上限に達する作成バーストでp99がSLO以内に収まることを確認する")
+    void testCreateBurst() throws IOException {
+        Queue<Long> createdIds = new ConcurrentLinkedQueue<>();
+        try {
+            run("create-burst", 200, 100, n -> sendCreate(createdIds), status -> status == 201 || status == 409);
+        } finally {
+            // give the quota back for the other workloads
+            for (Long todoId : createdIds) {
+                client.sendAsync(delete(todoId), HttpResponse.BodyHandlers.discarding()).join();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("作成・完了・削除を繰り返す負荷でp99がSLO以内に収まることを確認する")
+    void testChurn() throws IOException {
+        Queue<Long> createdIds = new ConcurrentLinkedQueue<>();
+        Queue<Long> finishedIds = new ConcurrentLinkedQueue<>();
+        try {
+            run("churn", 150, 100, n -> {
+                Long todoId;
+                if (n % 3 == 1 && (todoId = createdIds.poll()) != null) {
+                    Long finishedId = todoId;
+                    return send(put("/todos/" + todoId)).thenApply(status -> {
+                        finishedIds.add(finishedId);
+                        return status;
+                    });
+                }
+                if (n % 3 == 2 && (todoId = finishedIds.poll()) != null) {
+                    return send(delete(todoId));
+                }
+                return sendCreate(createdIds);
+            }, status -> status == 200 || status == 201 || status == 204 || status == 409);
+        } finally {
+            createdIds.addAll(finishedIds);
+            for (Long todoId : createdIds) {
+                client.sendAsync(delete(todoId), HttpResponse.BodyHandlers.discarding()).join();
+            }
+        }
+    }
+
+    private void run(String workload, int defaultRate, long defaultP99Millis,
+                     LongFunction<CompletableFuture<Integer>> operation,
+                     IntPredicate expected) throws IOException {
+        int rate = Integer.getInteger("load." + workload + ".rate", defaultRate);
+        long p99Millis = Long.getLong("load." + workload + ".p99-ms", defaultP99Millis);
+        Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 5L));
+        Duration duration = Duration.ofSeconds(Long.getLong("load.duration-seconds", 20L));
+
+        OpenLoopLoadGenerator.run(rate, warmup, operation, expected);
+        OpenLoopLoadGenerator.Result result = OpenLoopLoadGenerator.run(rate, duration, operation, expected);
+        result.report(workload, REPORT_DIRECTORY);
+
+        assertThat(result.errorRate()).as("error rate of %s", workload).isLessThan(0.01);
+        assertThat(result.percentileMillis(99)).as("p99 (ms) of %s", workload).isLessThanOrEqualTo(p99Millis);
+    }
+
+    private CompletableFuture<Integer> sendCreate(Queue<Long> createdIds) {
+        HttpRequest request = HttpRequest.newBuilder(uri("/todos"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"todoTitle\":\"load\"}"))
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            if (response.statusCode() == 201) {
+                Matcher matcher = TODO_ID.matcher(response.body());
+                if (matcher.find()) {
+                    createdIds.add(Long.valueOf(matcher.group(1)));
+                }
+            }
+            return response.statusCode();
+        });
+    }
+
+    private CompletableFuture<Integer> send(HttpRequest request) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenApply(HttpResponse::statusCode);
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private HttpRequest put(String path) {
+        return HttpRequest.newBuilder(uri(path)).PUT(HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private HttpRequest delete(Long todoId) {
+        return HttpRequest.newBuilder(uri("/todos/" + todoId)).DELETE().build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
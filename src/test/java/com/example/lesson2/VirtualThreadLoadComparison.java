@@ -0,0 +1,114 @@
+package com.example.lesson2;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the blocking stack on platform threads vs. virtual threads at high concurrency.
+ * Not a unit test; run it with
+ * {@code mvn -Pvirtual-threads test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.lesson2.VirtualThreadLoadComparison -Dconcurrency=2000 -Drequests=50000}.
+ * The virtual-thread run is skipped on JDKs older than 21.
+ */
+public class VirtualThreadLoadComparison {
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("concurrency", 1000);
+        int requests = Integer.getInteger("requests", 20000);
+
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %8s%n",
+                "mode", "req/s", "p50(ms)", "p99(ms)", "max(ms)", "errors", "total");
+        run("platform", false, concurrency, requests);
+        if (Runtime.version().feature() >= 21) {
+            run("virtual", true, concurrency, requests);
+        } else {
+            System.out.println("virtual    skipped, running on JDK " + Runtime.version());
+        }
+    }
+
+    private static void run(String mode, boolean virtualThreads, int concurrency, int requests) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Lesson2Application.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:load-" + mode + ";DB_CLOSE_DELAY=-1",
+                        "lesson2.virtual-threads.enabled=" + virtualThreads,
+                        // one client at full concurrency would be limited and shed
+                        "lesson2.rate-limit.enabled=false",
+                        "lesson2.admission.enabled=false",
+                        "logging.level.root=WARN")
+                .run()) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newHttpClient();
+
+            // warm up
+            execute(client, baseUrl, Math.min(concurrency, 100), 2000);
+            Result result = execute(client, baseUrl, concurrency, requests);
+            System.out.printf("%-10s %10.0f %10.2f %10.2f %10.2f %10d %8d%n",
+                    mode, result.throughput(), result.percentile(0.50), result.percentile(0.99),
+                    result.percentile(1.0), result.errors, requests);
+        }
+    }
+
+    private static Result execute(HttpClient client, String baseUrl, int concurrency, int requests)
+            throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[requests];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int index = i;
+            long sentAt = System.nanoTime();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/todos?limit=20&after="
+                    + ThreadLocalRandom.current().nextInt(3))).GET().build();
+            futures[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, e) -> {
+                        latencies[index] = System.nanoTime() - sentAt;
+                        if (e != null || response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+        }
+        CompletableFuture.allOf(futures).exceptionally(e -> null).join();
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(latencies, elapsed, errors.get());
+    }
+
+    private static class Result {
+        private final long[] sortedLatencies;
+
+        private final long elapsedNanos;
+
+        private final int errors;
+
+        Result(long[] sortedLatencies, long elapsedNanos, int errors) {
+            this.sortedLatencies = sortedLatencies;
+            this.elapsedNanos = elapsedNanos;
+            this.errors = errors;
+        }
+
+        double throughput() {
+            return sortedLatencies.length / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        double percentile(double percentile) {
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
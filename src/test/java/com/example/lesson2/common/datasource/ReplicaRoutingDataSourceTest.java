@@ -0,0 +1,57 @@
+package com.example.lesson2.common.datasource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaRoutingDataSourceTest {
+    private final DataSource primary =
+            new DriverManagerDataSource("jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1", "sa", "");
+
+    private final DataSource replica =
+            new DriverManagerDataSource("jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1", "sa", "");
+
+    @Test
+    @DisplayName("読み取り専用トランザクションはレプリカ、それ以外はプライマリに振り分けられることを確認する")
+    void testRouting() {
+        DataSource dataSource = routingDataSource(0L);
+
+        assertThat(currentDatabase(dataSource, true)).isEqualToIgnoringCase("routing_replica");
+        assertThat(currentDatabase(dataSource, false)).isEqualToIgnoringCase("routing_primary");
+        assertThat(currentDatabase(dataSource, true)).isEqualToIgnoringCase("routing_replica");
+        assertThat(new JdbcTemplate(dataSource).queryForObject("SELECT DATABASE()", String.class))
+                .isEqualToIgnoringCase("routing_primary");
+    }
+
+    @Test
+    @DisplayName("コミット直後の読み取りはプライマリに留まることを確認する")
+    void testReadYourWrites() {
+        DataSource dataSource = routingDataSource(60_000L);
+
+        assertThat(currentDatabase(dataSource, true)).isEqualToIgnoringCase("routing_replica");
+        currentDatabase(dataSource, false);
+        assertThat(currentDatabase(dataSource, true)).isEqualToIgnoringCase("routing_primary");
+    }
+
+    private DataSource routingDataSource(long readYourWritesWindowMillis) {
+        ReplicaRoutingDataSource routingDataSource =
+                new ReplicaRoutingDataSource(primary, replica, readYourWritesWindowMillis);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private String currentDatabase(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT DATABASE()", String.class));
+    }
+}
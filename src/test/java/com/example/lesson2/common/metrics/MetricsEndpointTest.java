@@ -0,0 +1,39 @@
+package com.example.lesson2.common.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMetrics
+public class MetricsEndpointTest {
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Test
+    @DisplayName("エンドポイント・サービス・SQL・コネクションプールのメトリクスが公開されることを確認する")
+    void testPrometheusEndpoint() {
+        assertThat(testRestTemplate.getForEntity("/todos/1", String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(testRestTemplate.getForEntity("/todos/999", String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+        ResponseEntity<String> actualResponseEntity = testRestTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(actualResponseEntity.getBody())
+                .contains("http_server_requests_seconds_bucket")
+                .contains("todo_service_seconds_count")
+                .contains("exception=\"ResourceNotFoundException\"")
+                .contains("statement=\"com.example.lesson2.todo.TodoRepository.findById\"")
+                .contains("todo_mapper_seconds_count")
+                .contains("todo_json_write_seconds_count")
+                .contains("hikaricp_connections_active");
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.lesson2.common.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitingFilterTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("クライアントごとにバーストを超えたPOSTが429になり、他のクライアントとGETは制限されないことを確認する")
+    void testLimitPerClient() throws ServletException, IOException {
+        RateLimitingFilter filter = new RateLimitingFilter(properties(), meterRegistry);
+
+        assertThat(execute(filter, "POST", "10.0.0.1").getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(execute(filter, "POST", "10.0.0.1").getStatus()).isEqualTo(HttpStatus.OK.value());
+        MockHttpServletResponse limitedResponse = execute(filter, "POST", "10.0.0.1");
+        assertThat(limitedResponse.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(limitedResponse.getHeader(HttpHeaders.RETRY_AFTER)).isNotNull();
+
+        assertThat(execute(filter, "POST", "10.0.0.2").getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(execute(filter, "GET", "10.0.0.1").getStatus()).isEqualTo(HttpStatus.OK.value());
+
+        assertThat(meterRegistry.get("todo.ratelimit").tags("rule", "create", "decision", "allowed").counter().count())
+                .isEqualTo(3.0);
+        assertThat(meterRegistry.get("todo.ratelimit").tags("rule", "create", "decision", "limited").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("クライアントIDヘッダーは信頼するプロキシからのものだけが使われることを確認する")
+    void testClientIdHeaderFromTrustedProxyOnly() throws ServletException, IOException {
+        RateLimitProperties properties = properties();
+        properties.setTrustedProxies(Collections.singletonList("10.0.0.9"));
+        RateLimitingFilter filter = new RateLimitingFilter(properties, meterRegistry);
+
+        // a new id on every request does not get a client past the limit
+        for (int i = 0; i < 2; i++) {
+            assertThat(execute(filter, "10.0.0.1", "client-" + i, null).getStatus()).isEqualTo(HttpStatus.OK.value());
+        }
+        assertThat(execute(filter, "10.0.0.1", "client-2", null).getStatus())
+                .isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+
+        // behind the proxy, every client id gets its own bucket
+        for (int i = 0; i < 3; i++) {
+            assertThat(execute(filter, "10.0.0.9", "client-" + i, null).getStatus()).isEqualTo(HttpStatus.OK.value());
+        }
+    }
+
+    @Test
+    @DisplayName("認証済みのリクエストはアドレスが変わっても同じプリンシパルとして制限されることを確認する")
+    void testLimitPerPrincipal() throws ServletException, IOException {
+        RateLimitingFilter filter = new RateLimitingFilter(properties(), meterRegistry);
+
+        assertThat(execute(filter, "10.0.0.1", null, "alice").getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(execute(filter, "10.0.0.2", null, "alice").getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(execute(filter, "10.0.0.3", null, "alice").getStatus())
+                .isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(execute(filter, "10.0.0.3", null, "bob").getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    @DisplayName("処理中のリクエスト数が上限に達すると503になることを確認する")
+    void testShedInFlight() throws ServletException, IOException {
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, 0, () -> 0, meterRegistry);
+        MockHttpServletResponse[] innerResponse = new MockHttpServletResponse[1];
+
+        MockHttpServletResponse outerResponse = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/todos"), outerResponse,
+                new MockFilterChain(new HttpServlet() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+                            throws ServletException, IOException {
+                        innerResponse[0] = new MockHttpServletResponse();
+                        filter.doFilter(new MockHttpServletRequest("GET", "/todos"), innerResponse[0], new MockFilterChain());
+                    }
+                }));
+
+        assertThat(outerResponse.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(innerResponse[0].getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        assertThat(meterRegistry.get("todo.admission").tags("decision", "shed-in-flight").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("コネクション待ちのスレッド数が上限を超えると503になることを確認する")
+    void testShedPendingConnections() throws ServletException, IOException {
+        AdmissionControlFilter filter = new AdmissionControlFilter(10, 2, () -> 3, meterRegistry);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/todos"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+    }
+
+    private static RateLimitProperties properties() {
+        RateLimitProperties.Rule rule = new RateLimitProperties.Rule();
+        rule.setName("create");
+        rule.setMethod("POST");
+        rule.setPath("/todos");
+        rule.setPermitsPerSecond(0.001);
+        rule.setBurst(2);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setRules(Collections.singletonList(rule));
+        return properties;
+    }
+
+    private static MockHttpServletResponse execute(RateLimitingFilter filter, String method, String remoteAddr)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/todos");
+        request.setRemoteAddr(remoteAddr);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletResponse execute(RateLimitingFilter filter, String remoteAddr, String clientId,
+                                                   String principal) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/todos");
+        request.setRemoteAddr(remoteAddr);
+        if (clientId != null) {
+            request.addHeader("X-Client-Id", clientId);
+        }
+        if (principal != null) {
+            request.setUserPrincipal(() -> principal);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.lesson2.common.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenBucketTest {
+    private final AtomicLong now = new AtomicLong(-5_000_000_000L);
+
+    @Test
+    @DisplayName("バースト分まで即時に取得でき、その後は補充された分だけ取得できることを確認する")
+    void testTryAcquire() {
+        TokenBucket tokenBucket = new TokenBucket(10, 3, now::get);
+
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isFalse();
+        assertThat(tokenBucket.nanosUntilNextPermit()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isFalse();
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertThat(tokenBucket.nanosUntilNextPermit()).isZero();
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isFalse();
+    }
+}
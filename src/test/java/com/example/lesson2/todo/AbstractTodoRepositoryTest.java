@@ -0,0 +1,192 @@
+package com.example.lesson2.todo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * {@link TodoRepository} contract, run against each storage engine with the rows of {@code data.sql}.
+ * The tests are declared here, so the rollback of a Spring test has to be declared here as well.
+ */
+@Transactional
+abstract class AbstractTodoRepositoryTest {
+    static final DateTimeFormatter DATETIME_FORMAT = DateTimeFormatter.ofPattern("uuuu/MM/dd HH:mm:ss");
+
+    @Autowired
+    TodoRepository todoRepository;
+
+    @Test
+    @DisplayName("全Todoが取得できることを確認する")
+    void testFindAll() {
+        Collection<Todo> actualTodos = todoRepository.findAll();
+
+        assertThat(actualTodos)
+                .extracting(Todo::getTodoId, Todo::getTodoTitle, Todo::isFinished, Todo::getCreatedAt)
+                .contains(
+                        tuple(1L,"sample 1", false, LocalDateTime.parse("2021/10/11 01:01:01", DATETIME_FORMAT)),
+                        tuple(2L,"sample 2", true,  LocalDateTime.parse("2021/10/11 02:02:02", DATETIME_FORMAT)),
+                        tuple(3L,"sample 3", false, LocalDateTime.parse("2021/10/11 03:03:03", DATETIME_FORMAT))
+                );
+    }
+
+    @Test
+    @DisplayName("todoIdより後ろのTodoが件数指定で取得できるか")
+    void testFindPage() {
+        Collection<Todo> actualTodos = todoRepository.findPage(1L, 1);
+
+        assertThat(actualTodos)
+                .extracting(Todo::getTodoId, Todo::getTodoTitle, Todo::isFinished, Todo::getCreatedAt)
+                .containsExactly(
+                        tuple(2L,"sample 2", true,  LocalDateTime.parse("2021/10/11 02:02:02", DATETIME_FORMAT))
+                );
+    }
+
+    @Test
+    @DisplayName("完了状態で絞り込んだTodoが取得できるか")
+    void testFindPageByFinished() {
+        Collection<Todo> actualTodos = todoRepository.findPageByFinished(false, 0L, 10);
+
+        assertThat(actualTodos)
+                .extracting(Todo::getTodoId)
+                .containsExactly(1L, 3L);
+    }
+
+    @Test
+    @DisplayName("作成日時の新しい順にTodoが取得できるか")
+    void testFindLatestByFinished() {
+        Collection<Todo> actualTodos = todoRepository.findLatestByFinished(false, 1);
+
+        assertThat(actualTodos)
+                .extracting(Todo::getTodoId, Todo::getTodoTitle, Todo::isFinished, Todo::getCreatedAt)
+                .containsExactly(
+                        tuple(3L,"sample 3", false, LocalDateTime.parse("2021/10/11 03:03:03", DATETIME_FORMAT))
+                );
+    }
+
+    @Test
+    @DisplayName("todoIdに対応するTodoが取得できるか")
+    void testFindById() {
+        Todo actualTodo = todoRepository.findById(1L).orElse(null);
+
+        assertThat(actualTodo)
+                .extracting(Todo::getTodoId, Todo::getTodoTitle, Todo::isFinished, Todo::getCreatedAt)
+                .contains(1L,"sample 1", false, LocalDateTime.parse("2021/10/11 01:01:01", DATETIME_FORMAT));
+    }
+
+    @Test
+    @DisplayName("新たなTodoが作成できるか")
+    void testCreate() {
+        Todo actualTodo = new Todo(null, "sample 4", false, LocalDateTime.parse("2020/10/11 04:04:04", DATETIME_FORMAT));
+
+        todoRepository.create(actualTodo);
+
+        Todo todo = getLastTodo();
+        assertThat(actualTodo).usingRecursiveComparison()
+                .ignoringFields("todoId")
+                .isEqualTo(todo);
+        assertThat(actualTodo).hasNoNullFieldsOrProperties();
+    }
+
+    @Test
+    @DisplayName("finishedをfalseからtrueに変更できるか")
+    void testUpdateById() {
+        Todo todo = getTodo(1L);
+
+        long count = todoRepository.updateById(1L);
+        Todo updated = getTodo(1L);
+
+        assertThat(count).isEqualTo(1L);
+        assertThat(updated).usingRecursiveComparison()
+                .ignoringFields("todoId", "finished", "version")
+                .isEqualTo(todo);
+        assertThat(updated).hasFieldOrPropertyWithValue("finished", true);
+        assertThat(updated.getVersion()).isGreaterThan(todo.getVersion());
+    }
+
+    @Test
+    @DisplayName("未完了のTodoだけが一文で完了になり、更新後の行が返るか")
+    void testFinishById() {
+        Todo todo = getTodo(1L);
+
+        Todo finished = todoRepository.finishById(1L).orElse(null);
+
+        assertThat(finished)
+                .extracting(Todo::getTodoId, Todo::isFinished)
+                .containsExactly(1L, true);
+        Todo stored = getTodo(1L);
+        assertThat(stored.isFinished()).isTrue();
+        assertThat(stored.getVersion()).isGreaterThan(todo.getVersion()).isEqualTo(finished.getVersion());
+        assertThat(todoRepository.finishById(1L)).isEmpty();
+        assertThat(todoRepository.finishById(9L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("削除したTodoの削除前の行が返るか")
+    void testDeleteByIdReturning() {
+        Todo deleted = todoRepository.deleteByIdReturning(2L).orElse(null);
+
+        assertThat(deleted)
+                .extracting(Todo::getTodoId, Todo::getTodoTitle, Todo::isFinished)
+                .containsExactly(2L, "sample 2", true);
+        assertThat(todoRepository.deleteByIdReturning(2L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("todoId=1が削除できていることを確認する(Repository)")
+    void testDeleteById() {
+        long count = todoRepository.deleteById(1L);
+
+        assertThat(count).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("未完了か完了済みのTodoの件数を取得できるか")
+    void testCountByFinished() {
+        long unfinishedCount = todoRepository.countByFinished(false);
+        long finishedCount = todoRepository.countByFinished(true);
+
+        assertThat(unfinishedCount).isEqualTo(2);
+        assertThat(finishedCount).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("所有者ごとの未完了件数が完了と削除に追従するか")
+    void testCountUnfinishedByOwner() {
+        assertThat(todoRepository.countUnfinishedByOwner(Todo.DEFAULT_OWNER)).isEqualTo(2);
+        assertThat(todoRepository.countUnfinishedByOwner("alice")).isEqualTo(0);
+
+        todoRepository.updateById(1L);
+        assertThat(todoRepository.countUnfinishedByOwner(Todo.DEFAULT_OWNER)).isEqualTo(1);
+        todoRepository.deleteById(3L);
+        assertThat(todoRepository.countUnfinishedByOwner(Todo.DEFAULT_OWNER)).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("件数と最大バージョンが更新に追従するか")
+    void testFindCollectionVersion() {
+        TodoCollectionVersion before = todoRepository.findCollectionVersion();
+
+        todoRepository.updateById(1L);
+        TodoCollectionVersion updated = todoRepository.findCollectionVersion();
+        todoRepository.deleteById(2L);
+        TodoCollectionVersion deleted = todoRepository.findCollectionVersion();
+
+        assertThat(before.getTodoCount()).isEqualTo(3);
+        assertThat(updated.getTodoCount()).isEqualTo(3);
+        assertThat(updated.getMaxVersion()).isGreaterThan(before.getMaxVersion());
+        assertThat(deleted.getTodoCount()).isEqualTo(2);
+        assertThat(deleted.toETag()).isNotEqualTo(updated.toETag());
+    }
+
+    abstract Todo getLastTodo();
+
+    abstract Todo getTodo(Long todoId);
+}
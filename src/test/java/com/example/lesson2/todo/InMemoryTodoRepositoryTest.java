@@ -0,0 +1,106 @@
+package com.example.lesson2.todo;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryTodoRepositoryTest extends AbstractTodoRepositoryTest {
+    private InMemoryTodoRepository inMemoryTodoRepository;
+
+    @BeforeEach
+    void setUp() {
+        inMemoryTodoRepository = new InMemoryTodoRepository();
+        todoRepository = inMemoryTodoRepository;
+        todoRepository.create(new Todo(null, "sample 1", false, LocalDateTime.parse("2021/10/11 01:01:01", DATETIME_FORMAT)));
+        todoRepository.create(new Todo(null, "sample 2", true, LocalDateTime.parse("2021/10/11 02:02:02", DATETIME_FORMAT)));
+        todoRepository.create(new Todo(null, "sample 3", false, LocalDateTime.parse("2021/10/11 03:03:03", DATETIME_FORMAT)));
+    }
+
+    @Test
+    @DisplayName("並行した作成と削除の後も件数が一致することを確認する")
+    void testConcurrentWrites() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        Todo todo = new Todo(null, "concurrent", false, LocalDateTime.now());
+                        todoRepository.create(todo);
+                        if (j % 2 == 0) {
+                            todoRepository.deleteById(todo.getTodoId());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(todoRepository.countByFinished(false)).isEqualTo(2 + 2000);
+        assertThat(todoRepository.findAll()).hasSize(3 + 2000);
+    }
+
+    @Test
+    @DisplayName("削除を挟んでもページを順にたどると全件がID順に一度ずつ返ることを確認する")
+    void testFindPageAcrossStripes() {
+        for (int i = 0; i < 100; i++) {
+            todoRepository.create(new Todo(null, "page " + i, false, LocalDateTime.now()));
+        }
+        for (long todoId = 10; todoId <= 60; todoId += 5) {
+            todoRepository.deleteById(todoId);
+        }
+
+        List<Long> todoIds = new ArrayList<>();
+        List<Todo> page = todoRepository.findPage(0, 7);
+        while (!page.isEmpty()) {
+            page.forEach(todo -> todoIds.add(todo.getTodoId()));
+            page = todoRepository.findPage(page.get(page.size() - 1).getTodoId(), 7);
+        }
+
+        assertThat(todoIds).hasSize(103 - 11).isSorted().doesNotHaveDuplicates().doesNotContain(10L, 35L, 60L);
+    }
+
+    @Test
+    @DisplayName("カーソルが走査しながら1件ずつ読み、走査中に削除されたTodoを返さないことを確認する")
+    void testFindAllAsCursorReadsLazily() throws Exception {
+        List<Long> todoIds = new ArrayList<>();
+        try (Cursor<Todo> cursor = todoRepository.findAllAsCursor()) {
+            Iterator<Todo> iterator = cursor.iterator();
+            todoIds.add(iterator.next().getTodoId());
+            todoRepository.deleteById(3L);
+            iterator.forEachRemaining(todo -> todoIds.add(todo.getTodoId()));
+
+            assertThat(cursor.isConsumed()).isTrue();
+            assertThat(cursor.getCurrentIndex()).isEqualTo(1);
+        }
+
+        assertThat(todoIds).containsExactly(1L, 2L);
+    }
+
+    @Override
+    Todo getLastTodo() {
+        List<Todo> todos = new ArrayList<>(inMemoryTodoRepository.findAll());
+        return todos.get(todos.size() - 1);
+    }
+
+    @Override
+    Todo getTodo(Long todoId) {
+        return inMemoryTodoRepository.findById(todoId).orElseThrow();
+    }
+}
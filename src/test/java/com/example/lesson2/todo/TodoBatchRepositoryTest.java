@@ -0,0 +1,73 @@
+package com.example.lesson2.todo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.EmptySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@MybatisTest
+@Import(MybatisTodoBatchRepository.class)
+public class TodoBatchRepositoryTest {
+    private static final DateTimeFormatter DATETIME_FORMAT = DateTimeFormatter.ofPattern("uuuu/MM/dd HH:mm:ss");
+
+    @Autowired
+    private TodoBatchRepository todoBatchRepository;
+
+    @Autowired
+    NamedParameterJdbcOperations jdbcOperations;
+
+    @Test
+    @DisplayName("一括作成でIDが採番されることを確認する")
+    void testCreate() {
+        Todo todo1 = new Todo(null, "sample 4", false, LocalDateTime.parse("2021/10/11 04:04:04", DATETIME_FORMAT));
+        Todo todo2 = new Todo(null, "sample 5", false, LocalDateTime.parse("2021/10/11 05:05:05", DATETIME_FORMAT));
+
+        todoBatchRepository.create(todo1);
+        todoBatchRepository.create(todo2);
+        int[] updateCounts = todoBatchRepository.flush();
+
+        assertThat(updateCounts).containsExactly(1, 1);
+        assertThat(todo1.getTodoId()).isNotNull();
+        assertThat(todo2.getTodoId()).isGreaterThan(todo1.getTodoId());
+        assertThat(countTodos()).isEqualTo(5L);
+    }
+
+    @Test
+    @DisplayName("未完了のTodoだけが一括で完了になることを確認する")
+    void testUpdateUnfinishedById() {
+        List<Todo> todos = todoBatchRepository.findAllById(Arrays.asList(1L, 2L, 3L));
+        assertThat(todos).hasSize(3);
+
+        todoBatchRepository.updateUnfinishedById(1L);
+        todoBatchRepository.updateUnfinishedById(2L);
+        todoBatchRepository.updateUnfinishedById(3L);
+        int[] updateCounts = todoBatchRepository.flush();
+
+        assertThat(updateCounts).containsExactly(1, 0, 1);
+    }
+
+    @Test
+    @DisplayName("読み取った状態のTodoだけが一括で削除されることを確認する")
+    void testDeleteByIdAndFinished() {
+        todoBatchRepository.deleteByIdAndFinished(1L, false);
+        todoBatchRepository.deleteByIdAndFinished(2L, false);
+        int[] updateCounts = todoBatchRepository.flush();
+
+        assertThat(updateCounts).containsExactly(1, 0);
+        assertThat(countTodos()).isEqualTo(2L);
+    }
+
+    private long countTodos() {
+        return jdbcOperations.queryForObject("SELECT count(*) FROM todo", new EmptySqlParameterSource(), Long.class);
+    }
+}
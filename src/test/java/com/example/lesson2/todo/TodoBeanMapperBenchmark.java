@@ -0,0 +1,58 @@
+package com.example.lesson2.todo;
+
+import com.github.dozermapper.core.DozerBeanMapperBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-object mapping cost of Dozer vs. {@link DirectTodoBeanMapper}.
+ * Run with {@code -prof gc} to compare allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoBeanMapperBenchmark {
+    private TodoBeanMapper dozerTodoBeanMapper;
+
+    private TodoBeanMapper directTodoBeanMapper;
+
+    private Todo todo;
+
+    private TodoResource todoResource;
+
+    @Setup
+    public void setUp() {
+        DozerTodoBeanMapper dozerMapper = new DozerTodoBeanMapper();
+        dozerMapper.beanMapper = DozerBeanMapperBuilder.buildDefault();
+        dozerTodoBeanMapper = dozerMapper;
+        directTodoBeanMapper = new DirectTodoBeanMapper();
+
+        todo = new Todo(1L, "sample todo 1", false, LocalDateTime.of(2021, 10, 11, 1, 1, 1));
+        todoResource = directTodoBeanMapper.toResource(todo);
+    }
+
+    @Benchmark
+    public TodoResource dozerToResource() {
+        return dozerTodoBeanMapper.toResource(todo);
+    }
+
+    @Benchmark
+    public TodoResource directToResource() {
+        return directTodoBeanMapper.toResource(todo);
+    }
+
+    @Benchmark
+    public Todo dozerToTodo() {
+        return dozerTodoBeanMapper.toTodo(todoResource);
+    }
+
+    @Benchmark
+    public Todo directToTodo() {
+        return directTodoBeanMapper.toTodo(todoResource);
+    }
+}
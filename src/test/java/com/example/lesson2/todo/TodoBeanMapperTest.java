@@ -0,0 +1,41 @@
+package com.example.lesson2.todo;
+
+import com.github.dozermapper.core.DozerBeanMapperBuilder;
+import com.github.dozermapper.core.Mapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TodoBeanMapperTest {
+    private static final DateTimeFormatter DATETIME_FORMAT = DateTimeFormatter.ofPattern("uuuu/MM/dd HH:mm:ss");
+
+    private final Mapper dozerMapper = DozerBeanMapperBuilder.buildDefault();
+
+    private final TodoBeanMapper todoBeanMapper = new DirectTodoBeanMapper();
+
+    @Test
+    @DisplayName("TodoからTodoResourceへの変換結果がDozerと一致することを確認する")
+    void testToResource() {
+        Todo todo = new Todo(1L, "sample todo 1", true, LocalDateTime.parse("2019/09/19 01:01:01", DATETIME_FORMAT));
+
+        TodoResource actualTodoResource = todoBeanMapper.toResource(todo);
+
+        assertThat(actualTodoResource).usingRecursiveComparison()
+                .isEqualTo(dozerMapper.map(todo, TodoResource.class));
+    }
+
+    @Test
+    @DisplayName("TodoResourceからTodoへの変換結果がDozerと一致することを確認する")
+    void testToTodo() {
+        TodoResource todoResource = new TodoResource(null, "sample todo 4", false, null);
+
+        Todo actualTodo = todoBeanMapper.toTodo(todoResource);
+
+        assertThat(actualTodo).usingRecursiveComparison()
+                .isEqualTo(dozerMapper.map(todoResource, Todo.class));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.lesson2.todo;
+
+import com.example.lesson2.Lesson2Application;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application without a web server on its own in-memory H2 database for benchmarks.
+ */
+final class TodoBenchmarkSupport {
+    private static final int INSERT_CHUNK_SIZE = 10_000;
+
+    private TodoBenchmarkSupport() {
+    }
+
+    static ConfigurableApplicationContext start(String databaseName, String... properties) {
+        List<String> allProperties = new ArrayList<>();
+        allProperties.add("spring.datasource.url=jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1");
+        allProperties.add("logging.level.root=WARN");
+        allProperties.addAll(List.of(properties));
+        return new SpringApplicationBuilder(Lesson2Application.class)
+                .web(WebApplicationType.NONE)
+                .properties(allProperties.toArray(new String[0]))
+                .run();
+    }
+
+    /**
+     * Inserts {@code count} todos, every other one finished, and returns the highest todo_id.
+     */
+    static long insertTodos(ConfigurableApplicationContext context, int count) {
+        return insertTodos(context, count, 2);
+    }
+
+    /**
+     * Inserts {@code count} todos of which every {@code unfinishedEvery}-th is unfinished,
+     * and returns the highest todo_id.
+     */
+    static long insertTodos(ConfigurableApplicationContext context, int count, int unfinishedEvery) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        LocalDateTime createdAt = LocalDateTime.of(2021, 10, 11, 0, 0);
+        for (int from = 0; from < count; from += INSERT_CHUNK_SIZE) {
+            List<Object[]> args = new ArrayList<>(INSERT_CHUNK_SIZE);
+            for (int i = from; i < Math.min(count, from + INSERT_CHUNK_SIZE); i++) {
+                args.add(new Object[]{"todo " + i, i % unfinishedEvery != 0, Timestamp.valueOf(createdAt.plusSeconds(i))});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO todo(todo_title, finished, created_at) VALUES (?, ?, ?)", args);
+        }
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(todo_id), 0) FROM todo", Long.class);
+    }
+}
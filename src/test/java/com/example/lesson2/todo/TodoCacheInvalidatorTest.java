@@ -0,0 +1,109 @@
+package com.example.lesson2.todo;
+
+import com.example.lesson2.Lesson2Application;
+import com.example.lesson2.common.cache.CacheInvalidation;
+import com.example.lesson2.common.cache.CacheInvalidationBus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs two nodes on one shared H2 database, connected by the loopback invalidation bus.
+ * Both load the sample data, so todos 1 to 3 are the ones inserted by the first node.
+ */
+public class TodoCacheInvalidatorTest {
+    private ConfigurableApplicationContext node1;
+
+    private ConfigurableApplicationContext node2;
+
+    @BeforeEach
+    void startNodes() {
+        String name = UUID.randomUUID().toString();
+        node1 = startNode(name);
+        node2 = startNode(name);
+    }
+
+    @AfterEach
+    void stopNodes() {
+        node2.close();
+        node1.close();
+    }
+
+    @Test
+    @DisplayName("別ノードでfinishしたTodoだけが自ノードのキャッシュから取り除かれることを確認する")
+    void testFinishOnOtherNode() {
+        todoService(node2).findOne(1L);
+        todoService(node2).findOne(3L);
+
+        todoService(node1).finish(1L);
+
+        assertThat(todoCache(node2).get(1L)).isNull();
+        assertThat(todoCache(node2).get(3L)).isNotNull();
+        assertThat(todoService(node2).findOne(1L).isFinished()).isTrue();
+    }
+
+    @Test
+    @DisplayName("別ノードでdeleteしたTodoが自ノードのキャッシュから取り除かれることを確認する")
+    void testDeleteOnOtherNode() {
+        todoService(node2).findOne(2L);
+
+        todoService(node1).delete(2L);
+
+        assertThat(todoCache(node2).get(2L)).isNull();
+    }
+
+    @Test
+    @DisplayName("キャッシュ済みのTodoより古いバージョンの無効化は無視されることを確認する")
+    void testStaleInvalidationIsIgnored() {
+        Todo cached = todoService(node2).findOne(3L);
+
+        node1.getBean(CacheInvalidationBus.class).publish(
+                new CacheInvalidation(TodoServiceImpl.TODO_CACHE, 3L, cached.getVersion() - 1));
+        assertThat(todoCache(node2).get(3L)).isNotNull();
+
+        node1.getBean(CacheInvalidationBus.class).publish(
+                new CacheInvalidation(TodoServiceImpl.TODO_CACHE, 3L, cached.getVersion()));
+        assertThat(todoCache(node2).get(3L)).isNull();
+    }
+
+    @Test
+    @DisplayName("無効化より古いTodoを読み込んでもキャッシュに入らないことを確認する")
+    void testLoadOlderThanInvalidationIsNotCached() {
+        Todo loaded = todoService(node2).findOne(3L);
+        todoCache(node2).evict(3L);
+
+        // as if node1 committed a newer version while node2 was still reading the old row
+        node1.getBean(CacheInvalidationBus.class).publish(
+                new CacheInvalidation(TodoServiceImpl.TODO_CACHE, 3L, loaded.getVersion() + 1));
+
+        assertThat(todoService(node2).findOne(3L).getVersion()).isEqualTo(loaded.getVersion());
+        assertThat(todoCache(node2).get(3L)).isNull();
+    }
+
+    private static ConfigurableApplicationContext startNode(String name) {
+        return new SpringApplicationBuilder(Lesson2Application.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1",
+                        "lesson2.cache.invalidation.channel=" + name)
+                .run();
+    }
+
+    private static TodoService todoService(ConfigurableApplicationContext node) {
+        return node.getBean(TodoService.class);
+    }
+
+    private static Cache todoCache(ConfigurableApplicationContext node) {
+        return node.getBean(CacheManager.class).getCache(TodoServiceImpl.TODO_CACHE);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.lesson2.todo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class TodoChangeFeedTest {
+    private TodoChangeFeed todoChangeFeed;
+
+    @BeforeEach
+    void setUp() {
+        todoChangeFeed = new TodoChangeFeed();
+        todoChangeFeed.capacity = 3;
+        todoChangeFeed.timeoutMillis = 1000L;
+        todoChangeFeed.subscriberQueueCapacity = 2;
+        todoChangeFeed.beanMapper = new DirectTodoBeanMapper();
+        todoChangeFeed.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoChangeFeed.destroy();
+    }
+
+    @Test
+    @DisplayName("Last-Event-ID以降の変更が順番に取得できることを確認する")
+    void testChangesAfter() {
+        publish(TodoChangedEvent.Type.CREATED, 1L, false);
+        publish(TodoChangedEvent.Type.FINISHED, 1L, true);
+        publish(TodoChangedEvent.Type.DELETED, 1L, true);
+
+        assertThat(todoChangeFeed.changesAfter(0L))
+                .extracting(TodoChangeResource::getSequence, TodoChangeResource::getType, TodoChangeResource::getTodoId)
+                .containsExactly(
+                        tuple(1L, "created", 1L),
+                        tuple(2L, "finished", 1L),
+                        tuple(3L, "deleted", 1L)
+                );
+        assertThat(todoChangeFeed.changesAfter(2L).get(0).getTodo()).isNull();
+        assertThat(todoChangeFeed.changesAfter(3L)).isEmpty();
+        assertThat(todoChangeFeed.changesAfter(null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("リングバッファから溢れた変更を要求するとnullになることを確認する")
+    void testChangesAfterOverflow() {
+        for (long todoId = 1; todoId <= 4; todoId++) {
+            publish(TodoChangedEvent.Type.CREATED, todoId, false);
+        }
+
+        assertThat(todoChangeFeed.changesAfter(0L)).isNull();
+        assertThat(todoChangeFeed.changesAfter(1L))
+                .extracting(TodoChangeResource::getSequence)
+                .containsExactly(2L, 3L, 4L);
+        assertThat(todoChangeFeed.changesAfter(5L)).isNull();
+    }
+
+    private void publish(TodoChangedEvent.Type type, long todoId, boolean finished) {
+        Todo todo = new Todo(todoId, "sample todo " + todoId, finished, LocalDateTime.now());
+        todoChangeFeed.onTodoChanged(new TodoChangedEvent(type, todo));
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.lesson2.todo;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.github.dozermapper.core.Mapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
@@ -10,16 +14,26 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Mockito.times;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT) // (1)
@@ -32,9 +46,20 @@ public class TodoControllerTest {
     @Autowired
     private Mapper beanMapper;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @MockBean
     private TodoService todoService;
 
+    @Autowired
+    private TodoListBodyCache todoListBodyCache;
+
+    @BeforeEach
+    void clearListBodyCache() {
+        todoListBodyCache.clear();
+    }
+
     @Test
     @DisplayName("GET Todosが正常に動作することを確認する(Controller)")
     void testGetTodos() {
@@ -44,14 +69,202 @@ public class TodoControllerTest {
         TodoResource[] expectTodoResources = expectTodos.stream()
                 .map(todo -> beanMapper.map(todo, TodoResource.class)).toArray(TodoResource[]::new);
 
+        given(todoService.findCollectionVersion()).willReturn(new TodoCollectionVersion(2L, 2L));
         given(todoService.findAll()).willReturn(expectTodos);
 
         ResponseEntity<TodoResource[]> actualResponseEntity =
                 testRestTemplate.getForEntity("/todos", TodoResource[].class);
 
         then(todoService).should(times(1)).findAll();
-        assertThat(actualResponseEntity.getBody()).usingFieldByFieldElementComparator().containsExactly(expectTodoResources[0], expectTodoResources[1]);
+        assertThat(actualResponseEntity.getBody()).usingElementComparatorIgnoringFields("owner").containsExactly(expectTodoResources[0], expectTodoResources[1]);
+        assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(actualResponseEntity.getHeaders().getETag()).isEqualTo("\"2-2-json\"");
+        assertThat(actualResponseEntity.getHeaders().getVary()).contains(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    @Test
+    @DisplayName("GET Todosがgzipで返され、同じバージョンの2回目は一覧を取得しないことを確認する(Controller)")
+    void testGetTodosGzipCached() throws IOException {
+        List<Todo> expectTodos = new ArrayList<>();
+        for (long i = 1; i <= 100; i++) {
+            expectTodos.add(new Todo(i, "sample todo " + i, false, LocalDateTime.parse("2019/09/19 01:01:01", DATETIME_FORMAT)));
+        }
+
+        given(todoService.findCollectionVersion()).willReturn(new TodoCollectionVersion(100L, 100L));
+        given(todoService.findAll()).willReturn(expectTodos);
+
+        RequestEntity<Void> requestEntity = RequestEntity.get(URI.create("/todos"))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip").build();
+        testRestTemplate.exchange(requestEntity, byte[].class);
+        ResponseEntity<byte[]> actualResponseEntity = testRestTemplate.exchange(requestEntity, byte[].class);
+
+        then(todoService).should(times(1)).findAll();
+        assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(actualResponseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        TodoResource[] actualTodoResources;
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(actualResponseEntity.getBody()))) {
+            actualTodoResources = objectMapper.readValue(inputStream, TodoResource[].class);
+        }
+        assertThat(actualTodoResources).hasSize(100);
+        assertThat(actualTodoResources[99].getTodoId()).isEqualTo(100L);
+    }
+
+    @Test
+    @DisplayName("GET TodosがETag一致時に304を返し一覧を取得しないことを確認する(Controller)")
+    void testGetTodosNotModified() {
+        given(todoService.findCollectionVersion()).willReturn(new TodoCollectionVersion(2L, 2L));
+
+        RequestEntity<Void> requestEntity =
+                RequestEntity.get(URI.create("/todos")).ifNoneMatch("\"2-2-json\"").build();
+        ResponseEntity<TodoResource[]> actualResponseEntity =
+                testRestTemplate.exchange(requestEntity, TodoResource[].class);
+
+        then(todoService).should(times(0)).findAll();
+        assertThat(actualResponseEntity.getBody()).isNull();
+        assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(actualResponseEntity.getHeaders().getVary()).contains(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    @Test
+    @DisplayName("GET TodosのETagが表現ごとに異なり、JSONのETagではNDJSONが304にならないことを確認する(Controller)")
+    void testGetTodosETagPerRepresentation() {
+        given(todoService.findCollectionVersion()).willReturn(new TodoCollectionVersion(2L, 2L));
+
+        RequestEntity<Void> requestEntity = RequestEntity.get(URI.create("/todos"))
+                .accept(MediaType.APPLICATION_NDJSON).ifNoneMatch("\"2-2-json\"").build();
+        ResponseEntity<String> actualResponseEntity = testRestTemplate.exchange(requestEntity, String.class);
+
+        assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(actualResponseEntity.getHeaders().getETag()).isEqualTo("\"2-2-ndjson\"");
+        assertThat(actualResponseEntity.getHeaders().getVary()).contains(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    @Test
+    @DisplayName("GET TodosがAccept: */*にはJSONの一覧を返すことを確認する(Controller)")
+    void testGetTodosAcceptAll() {
+        given(todoService.findCollectionVersion()).willReturn(new TodoCollectionVersion(2L, 2L));
+        given(todoService.findAll()).willReturn(Collections.emptyList());
+
+        RequestEntity<Void> requestEntity = RequestEntity.get(URI.create("/todos")).accept(MediaType.ALL).build();
+        ResponseEntity<String> actualResponseEntity = testRestTemplate.exchange(requestEntity, String.class);
+
+        then(todoService).should(times(1)).findAll();
+        assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(actualResponseEntity.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(actualResponseEntity.getHeaders().getETag()).isEqualTo("\"2-2-json\"");
+        assertThat(actualResponseEntity.getBody()).isEqualTo("[]");
+    }
+
+    @Test
+    @DisplayName("GET TodoがETag一致時に304を返すことを確認する(Controller)")
+    void testGetTodoNotModified() {
+        Todo expectTodo = new Todo(1L, "sample todo 1", false, LocalDateTime.parse("2019/09/19 01:01:01", DATETIME_FORMAT), 7L);
+
+        given(this.todoService.findOne(1L)).willReturn(expectTodo);
+
+        RequestEntity<Void> requestEntity =
+                RequestEntity.get(URI.create("/todos/1")).ifNoneMatch("\"7\"").build();
+        ResponseEntity<TodoResource> actualResponseEntity =
+                testRestTemplate.exchange(requestEntity, TodoResource.class);
+
+        assertThat(actualResponseEntity.getBody()).isNull();
+        assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    @DisplayName("GET TodosがNDJSONで1行1件を返すことを確認する(Controller)")
+    void testGetTodosAsNdjson() {
+        Todo expectTodo1 = new Todo(1L, "sample todo 1", false, LocalDateTime.parse("2019/09/19 01:01:01", DATETIME_FORMAT));
+        Todo expectTodo2 = new Todo(2L, "sample todo 2", true, LocalDateTime.parse("2019/09/19 02:02:02", DATETIME_FORMAT));
+        List<Todo> expectTodos = Arrays.asList(expectTodo1, expectTodo2);
+
+        given(todoService.findCollectionVersion()).willReturn(new TodoCollectionVersion(2L, 2L));
+        willAnswer(invocation -> {
+            Consumer<Todo> consumer = invocation.getArgument(0);
+            expectTodos.forEach(consumer);
+            return null;
+        }).given(todoService).exportAll(any());
+
+        RequestEntity<Void> requestEntity =
+                RequestEntity.get(URI.create("/todos")).accept(MediaType.APPLICATION_NDJSON).build();
+        ResponseEntity<String> actualResponseEntity = testRestTemplate.exchange(requestEntity, String.class);
+
+        then(todoService).should(times(0)).findAll();
         assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(actualResponseEntity.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(actualResponseEntity.getBody()).isEqualTo(
+                "{\"todoId\":1,\"todoTitle\":\"sample todo 1\",\"finished\":false,\"owner\":\"default\",\"createdAt\":"
+                        + TodoStreamWriter.toEpochMillis(expectTodo1) + "}\n"
+                        + "{\"todoId\":2,\"todoTitle\":\"sample todo 2\",\"finished\":true,\"owner\":\"default\",\"createdAt\":"
+                        + TodoStreamWriter.toEpochMillis(expectTodo2) + "}\n");
+    }
+
+    @Test
+    @DisplayName("GET TodosがCBORで全件を返すことを確認する(Controller)")
+    void testGetTodosAsCbor() throws IOException {
+        Todo expectTodo1 = new Todo(1L, "sample todo 1", false, LocalDateTime.parse("2019/09/19 01:01:01", DATETIME_FORMAT));
+        Todo expectTodo2 = new Todo(2L, "sample todo 2", true, LocalDateTime.parse("2019/09/19 02:02:02", DATETIME_FORMAT));
+        List<Todo> expectTodos = Arrays.asList(expectTodo1, expectTodo2);
+
+        given(todoService.findCollectionVersion()).willReturn(new TodoCollectionVersion(2L, 2L));
+        willAnswer(invocation -> {
+            Consumer<Todo> consumer = invocation.getArgument(0);
+            expectTodos.forEach(consumer);
+            return null;
+        }).given(todoService).exportAll(any());
+
+        RequestEntity<Void> requestEntity =
+                RequestEntity.get(URI.create("/todos")).accept(MediaType.APPLICATION_CBOR).build();
+        ResponseEntity<byte[]> actualResponseEntity = testRestTemplate.exchange(requestEntity, byte[].class);
+
+        assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(actualResponseEntity.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_CBOR);
+        assertThat(actualResponseEntity.getHeaders().getETag()).isEqualTo("\"2-2-cbor\"");
+        JsonNode actualTodos = new ObjectMapper(new CBORFactory()).readTree(actualResponseEntity.getBody());
+        assertThat(actualTodos).hasSize(2);
+        assertThat(actualTodos.get(1).get("todoId").asLong()).isEqualTo(2L);
+        assertThat(actualTodos.get(1).get("todoTitle").asText()).isEqualTo("sample todo 2");
+        assertThat(actualTodos.get(1).get("finished").asBoolean()).isTrue();
+        assertThat(actualTodos.get(1).get("createdAt").asLong()).isEqualTo(TodoStreamWriter.toEpochMillis(expectTodo2));
+    }
+
+    @Test
+    @DisplayName("GET Todos(ページング)が正常に動作することを確認する(Controller)")
+    void testGetTodoPage() {
+        Todo expectTodo1 = new Todo(2L, "sample todo 2", true, LocalDateTime.parse("2019/09/19 02:02:02", DATETIME_FORMAT));
+        Todo expectTodo2 = new Todo(3L, "sample todo 3", false, LocalDateTime.parse("2019/09/19 03:03:03", DATETIME_FORMAT));
+        Collection<Todo> expectTodos = Arrays.asList(expectTodo1, expectTodo2);
+        TodoResource[] expectTodoResources = expectTodos.stream()
+                .map(todo -> beanMapper.map(todo, TodoResource.class)).toArray(TodoResource[]::new);
+
+        given(todoService.findPage(1L, 2)).willReturn(expectTodos);
+
+        ResponseEntity<TodoPageResource> actualResponseEntity =
+                testRestTemplate.getForEntity("/todos?after=1&limit=2", TodoPageResource.class);
+
+        then(todoService).should(times(1)).findPage(1L, 2);
+        assertThat(actualResponseEntity.getBody().getTodos()).usingElementComparatorIgnoringFields("owner").containsExactly(expectTodoResources[0], expectTodoResources[1]);
+        assertThat(actualResponseEntity.getBody().getNextCursor()).isEqualTo(3L);
+        assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    @DisplayName("GET Todos Searchが検索結果と次のoffsetを返すことを確認する(Controller)")
+    void testSearchTodos() {
+        Todo expectTodo1 = new Todo(3L, "buy milk", false, LocalDateTime.parse("2019/09/19 03:03:03", DATETIME_FORMAT));
+        Todo expectTodo2 = new Todo(1L, "buy milk tea", false, LocalDateTime.parse("2019/09/19 01:01:01", DATETIME_FORMAT));
+        TodoResource[] expectTodoResources = Arrays.asList(expectTodo1, expectTodo2).stream()
+                .map(todo -> beanMapper.map(todo, TodoResource.class)).toArray(TodoResource[]::new);
+
+        given(todoService.search("buy mi", 2, 2)).willReturn(Arrays.asList(expectTodo1, expectTodo2));
+
+        ResponseEntity<TodoSearchResource> actualResponseEntity =
+                testRestTemplate.getForEntity("/todos/search?q={q}&offset=2&limit=2", TodoSearchResource.class, "buy mi");
+
+        then(todoService).should(times(1)).search("buy mi", 2, 2);
+        assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(actualResponseEntity.getBody().getTodos()).usingElementComparatorIgnoringFields("owner").containsExactly(expectTodoResources[0], expectTodoResources[1]);
+        assertThat(actualResponseEntity.getBody().getNextOffset()).isEqualTo(4);
     }
 
     @Test
@@ -66,10 +279,34 @@ public class TodoControllerTest {
                 testRestTemplate.getForEntity("/todos/1", TodoResource.class);
 
         then(todoService).should(times(1)).findOne(ArgumentMatchers.longThat(arg -> arg.equals(expectTodo.getTodoId())));
-        assertThat(actualResponseEntity.getBody()).usingRecursiveComparison().isEqualTo(expectTodoResource);
+        assertThat(actualResponseEntity.getBody()).usingRecursiveComparison().ignoringFields("owner").isEqualTo(expectTodoResource);
         assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
 
+    @Test
+    @DisplayName("存在しないTodoのGETでエラーコード付きの404が返ることを確認する(Controller)")
+    void testGetTodoNotFound() {
+        given(this.todoService.findOne(9L)).willThrow(TodoServiceImpl.notFound(9L));
+
+        ResponseEntity<String> actualResponseEntity = testRestTemplate.getForEntity("/todos/9", String.class);
+
+        assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(actualResponseEntity.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(actualResponseEntity.getBody()).isEqualTo("{\"status\":404,\"code\":\"TODO_NOT_FOUND\",\"todoId\":9}");
+    }
+
+    @Test
+    @DisplayName("未完了Todoの上限を超えたPOSTでエラーコード付きの409が返ることを確認する(Controller)")
+    void testPostTodoOverQuota() {
+        TodoResource todoResource = new TodoResource(null, "sample todo 6", false, null);
+        given(todoService.create(any())).willThrow(TodoServiceImpl.unfinishedQuotaExceeded(5L));
+
+        ResponseEntity<String> actualResponseEntity = testRestTemplate.postForEntity("/todos", todoResource, String.class);
+
+        assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(actualResponseEntity.getBody()).isEqualTo("{\"status\":409,\"code\":\"UNFINISHED_QUOTA_EXCEEDED\",\"limit\":5}");
+    }
+
     @Test
     @DisplayName("POST Todoが正常に動作することを確認する(Controller)")
     void testPostTodo() {
@@ -85,7 +322,7 @@ public class TodoControllerTest {
                 testRestTemplate.postForEntity("/todos", inputTodoResource, TodoResource.class);
 
         then(todoService).should(times(1)).create(ArgumentMatchers.argThat(arg -> inputTodo.getTodoTitle().equals(arg.getTodoTitle())));
-        assertThat(actualResponseEntity.getBody()).usingRecursiveComparison().isEqualTo(expectTodoResource);
+        assertThat(actualResponseEntity.getBody()).usingRecursiveComparison().ignoringFields("owner").isEqualTo(expectTodoResource);
         assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.CREATED);
     }
 
@@ -103,7 +340,7 @@ public class TodoControllerTest {
                 testRestTemplate.exchange(actualRequestEntity, TodoResource.class);
 
         then(todoService).should(times(1)).finish(ArgumentMatchers.longThat(arg -> arg.equals(expectTodo.getTodoId())));
-        assertThat(actualResponseEntity.getBody()).usingRecursiveComparison().isEqualTo(expectTodoResource);
+        assertThat(actualResponseEntity.getBody()).usingRecursiveComparison().ignoringFields("owner").isEqualTo(expectTodoResource);
         assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
 
@@ -117,4 +354,52 @@ public class TodoControllerTest {
         assertThat(actualResponseEntity.getBody()).isNull();
         assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("POST Todos(一括作成)が項目ごとの結果を返すことを確認する(Controller)")
+    void testPostTodos() {
+        TodoResource inputTodoResource1 = new TodoResource();
+        inputTodoResource1.setTodoTitle("sample todo 4");
+        TodoResource inputTodoResource2 = new TodoResource();
+        inputTodoResource2.setTodoTitle("sample todo 5");
+        Todo expectTodo = new Todo(4L, "sample todo 4", false, LocalDateTime.parse("2019/09/19 04:04:04", DATETIME_FORMAT));
+
+        given(this.todoService.createAll(ArgumentMatchers.anyList())).willReturn(Arrays.asList(
+                TodoBatchResult.ok(expectTodo),
+                TodoBatchResult.conflict(null, "The count of un-finished Todo must not be over 5.")));
+
+        ResponseEntity<TodoBatchResultResource[]> actualResponseEntity = testRestTemplate.postForEntity(
+                "/todos/batch", new TodoBatchResource(Arrays.asList(inputTodoResource1, inputTodoResource2)),
+                TodoBatchResultResource[].class);
+
+        then(todoService).should(times(1)).createAll(ArgumentMatchers.<List<Todo>>argThat(arg -> arg.size() == 2
+                && "sample todo 4".equals(arg.get(0).getTodoTitle())));
+        assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(actualResponseEntity.getBody())
+                .extracting(TodoBatchResultResource::getTodoId, TodoBatchResultResource::getStatus)
+                .containsExactly(tuple(4L, 201), tuple(null, 409));
+        assertThat(actualResponseEntity.getBody()[0].getTodo()).usingRecursiveComparison().ignoringFields("owner")
+                .isEqualTo(beanMapper.map(expectTodo, TodoResource.class));
+    }
+
+    @Test
+    @DisplayName("PUT Todos(一括完了)が項目ごとの結果を返すことを確認する(Controller)")
+    void testPutTodos() {
+        Todo expectTodo = new Todo(1L, "sample todo 1", true, LocalDateTime.parse("2019/09/19 01:01:01", DATETIME_FORMAT));
+
+        given(this.todoService.finishAll(Arrays.asList(1L, 9L))).willReturn(Arrays.asList(
+                TodoBatchResult.ok(expectTodo),
+                TodoBatchResult.notFound(9L)));
+
+        RequestEntity<List<Long>> actualRequestEntity =
+                RequestEntity.put(URI.create("/todos/batch/finish")).body(Arrays.asList(1L, 9L));
+        ResponseEntity<TodoBatchResultResource[]> actualResponseEntity =
+                testRestTemplate.exchange(actualRequestEntity, TodoBatchResultResource[].class);
+
+        then(todoService).should(times(1)).finishAll(Arrays.asList(1L, 9L));
+        assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(actualResponseEntity.getBody())
+                .extracting(TodoBatchResultResource::getTodoId, TodoBatchResultResource::getStatus)
+                .containsExactly(tuple(1L, 200), tuple(9L, 404));
+    }
+}
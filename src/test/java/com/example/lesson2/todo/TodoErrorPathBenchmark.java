@@ -0,0 +1,90 @@
+package com.example.lesson2.todo;
+
+import com.example.lesson2.Lesson2Application;
+import com.example.lesson2.common.exception.ResourceNotFoundException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of 404 ({@code GET /todos/{missing}}) and 409 (over-quota {@code POST /todos}) responses
+ * over HTTP, with the {@link com.example.lesson2.common.exception.ErrorResponseAdvice} fast path and
+ * with the generic {@code @ResponseStatus} / {@code /error} handling it replaces, plus the cost of
+ * building the exceptions themselves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class TodoErrorPathBenchmark {
+    @Param({"true", "false"})
+    public boolean fastPath;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient client;
+
+    private HttpRequest notFoundRequest;
+
+    private HttpRequest overQuotaRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        context = new SpringApplicationBuilder(Lesson2Application.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:error-path;DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN",
+                        "lesson2.rate-limit.enabled=false",
+                        "lesson2.admission.enabled=false",
+                        "lesson2.error.fast-path.enabled=" + fastPath)
+                .run();
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newHttpClient();
+        notFoundRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/todos/999999")).GET().build();
+        overQuotaRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/todos"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"todoTitle\":\"benchmark\"}"))
+                .build();
+        // fill the unfinished quota so every further create is rejected
+        for (long i = 0; i < context.getBean(TodoQuotaProperties.class).getDefaultMaxUnfinished(); i++) {
+            client.send(overQuotaRequest, HttpResponse.BodyHandlers.discarding());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int notFound() throws IOException, InterruptedException {
+        return client.send(notFoundRequest, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+    }
+
+    @Benchmark
+    public int overQuota() throws IOException, InterruptedException {
+        return client.send(overQuotaRequest, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+    }
+
+    @Benchmark
+    public RuntimeException createStacklessException() {
+        return TodoServiceImpl.notFound(999999L);
+    }
+
+    @Benchmark
+    public RuntimeException createLegacyException() {
+        // the message is built eagerly and the stack trace is filled in, as before
+        return new ResourceNotFoundException(TodoServiceImpl.notFoundMessage(999999L));
+    }
+}
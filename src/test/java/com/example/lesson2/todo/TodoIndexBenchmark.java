@@ -0,0 +1,71 @@
+package com.example.lesson2.todo;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TodoRepository} queries on {@code finished} and {@code created_at} with the schema indexes kept or dropped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoIndexBenchmark {
+    @Param({"1000000"})
+    public int tableSize;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private ConfigurableApplicationContext context;
+
+    private TodoRepository todoRepository;
+
+    private long maxTodoId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = TodoBenchmarkSupport.start("index-" + tableSize + "-" + indexed);
+        todoRepository = context.getBean(TodoRepository.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        if (!indexed) {
+            jdbcTemplate.execute("DROP INDEX IF EXISTS idx_todo_finished");
+            jdbcTemplate.execute("DROP INDEX IF EXISTS idx_todo_finished_created_at");
+        }
+        // one unfinished todo in a thousand, as the unfinished quota keeps that set small
+        maxTodoId = TodoBenchmarkSupport.insertTodos(context, tableSize, 1000);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long countUnfinished() {
+        return todoRepository.countByFinished(false);
+    }
+
+    @Benchmark
+    public Collection<Todo> findUnfinishedPage() {
+        return todoRepository.findPageByFinished(false, ThreadLocalRandom.current().nextLong(0, maxTodoId), 100);
+    }
+
+    @Benchmark
+    public Collection<Todo> findLatestUnfinished() {
+        return todoRepository.findLatestByFinished(false, 20);
+    }
+
+    @Benchmark
+    public Collection<Todo> findLatestFinished() {
+        return todoRepository.findLatestByFinished(true, 20);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.lesson2.todo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TodoListBodyCacheTest {
+    private TodoListBodyCache todoListBodyCache;
+
+    private final AtomicInteger serialized = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        todoListBodyCache = new TodoListBodyCache();
+        todoListBodyCache.enabled = true;
+        todoListBodyCache.maxSizeBytes = 1024;
+        todoListBodyCache.compressionEnabled = false;
+        todoListBodyCache.compressionMinResponseSize = DataSize.ofKilobytes(2);
+    }
+
+    @Test
+    @DisplayName("同じETagの2回目はシリアライズせずにキャッシュから返すことを確認する")
+    void testGetCached() {
+        todoListBodyCache.get("3-10-json", this::serialize, () -> "3-10-json");
+        TodoListBodyCache.Body body = todoListBodyCache.get("3-10-json", this::serialize, () -> "3-10-json");
+
+        assertThat(serialized.get()).isEqualTo(1);
+        assertThat(body.getETag()).isEqualTo("3-10-json");
+    }
+
+    @Test
+    @DisplayName("シリアライズ中にETagが変わった一覧はキャッシュしないことを確認する")
+    void testGetNotCachedWhenETagMoved() {
+        todoListBodyCache.get("3-10-json", this::serialize, () -> "4-11-json");
+        todoListBodyCache.get("3-10-json", this::serialize, () -> "3-10-json");
+
+        assertThat(serialized.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("シリアライズ中に変更イベントが届いた一覧は、ETagが元に戻ってもキャッシュしないことを確認する")
+    void testGetNotCachedWhenChangedMeanwhile() {
+        todoListBodyCache.get("3-10-json", () -> {
+            todoListBodyCache.onTodoChanged(new TodoChangedEvent(TodoChangedEvent.Type.CREATED,
+                    new Todo(4L, "created", false, null)));
+            todoListBodyCache.onTodoChanged(new TodoChangedEvent(TodoChangedEvent.Type.DELETED,
+                    new Todo(4L, "created", false, null)));
+            return serialize();
+        }, () -> "3-10-json");
+        todoListBodyCache.get("3-10-json", this::serialize, () -> "3-10-json");
+
+        assertThat(serialized.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("キャッシュが無効のときはgzipを作らないことを確認する")
+    void testGetDisabled() {
+        todoListBodyCache.enabled = false;
+        todoListBodyCache.compressionEnabled = true;
+        todoListBodyCache.compressionMinResponseSize = DataSize.ofBytes(0);
+
+        TodoListBodyCache.Body body = todoListBodyCache.get("3-10-json", this::serialize, () -> "3-10-json");
+
+        assertThat(body.getGzip()).isNull();
+    }
+
+    private byte[] serialize() {
+        serialized.incrementAndGet();
+        return "[]".getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.lesson2.todo;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup recovery of the {@link InMemoryTodoRepository} from the log alone and from a snapshot plus an empty tail.
+ * The 10M case needs a heap of several GB, hence the forked JVM's -Xmx.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class TodoRecoveryBenchmark {
+    @Param({"1000000", "10000000"})
+    public int todoCount;
+
+    @Param({"false", "true"})
+    public boolean fromSnapshot;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("todo-wal");
+        InMemoryTodoRepository todoRepository = new InMemoryTodoRepository();
+        TodoWriteAheadLog writeAheadLog = open(todoRepository);
+        LocalDateTime createdAt = LocalDateTime.of(2021, 10, 11, 0, 0);
+        for (int i = 0; i < todoCount; i++) {
+            Todo todo = new Todo(null, "todo " + i, false, createdAt.plusSeconds(i));
+            todoRepository.create(todo);
+            if (i % 2 == 0) {
+                todoRepository.finishById(todo.getTodoId());
+            }
+        }
+        if (fromSnapshot) {
+            writeAheadLog.snapshot();
+        }
+        writeAheadLog.destroy();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public InMemoryTodoRepository recover() throws IOException {
+        InMemoryTodoRepository todoRepository = new InMemoryTodoRepository();
+        open(todoRepository).destroy();
+        return todoRepository;
+    }
+
+    private TodoWriteAheadLog open(InMemoryTodoRepository todoRepository) throws IOException {
+        TodoWriteAheadLog writeAheadLog = new TodoWriteAheadLog();
+        writeAheadLog.directory = directory.toString();
+        writeAheadLog.segmentSizeBytes = 64 * 1024 * 1024;
+        writeAheadLog.fsync = TodoWriteAheadLog.FsyncPolicy.NONE;
+        writeAheadLog.snapshotIntervalMillis = 0;
+        writeAheadLog.todoRepository = todoRepository;
+        writeAheadLog.afterPropertiesSet();
+        return writeAheadLog;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.lesson2.todo;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TodoRepository} statements against H2 at several table sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoRepositoryBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int tableSize;
+
+    private ConfigurableApplicationContext context;
+
+    private TodoRepository todoRepository;
+
+    private long maxTodoId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = TodoBenchmarkSupport.start("repository-" + tableSize);
+        todoRepository = context.getBean(TodoRepository.class);
+        maxTodoId = TodoBenchmarkSupport.insertTodos(context, tableSize);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteCreated() {
+        context.getBean(JdbcTemplate.class).update("DELETE FROM todo WHERE todo_id > ?", maxTodoId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Todo> findById() {
+        return todoRepository.findById(ThreadLocalRandom.current().nextLong(1, maxTodoId + 1));
+    }
+
+    @Benchmark
+    public Collection<Todo> findAll() {
+        return todoRepository.findAll();
+    }
+
+    @Benchmark
+    public Collection<Todo> findPage() {
+        return todoRepository.findPage(ThreadLocalRandom.current().nextLong(0, maxTodoId), 100);
+    }
+
+    @Benchmark
+    public Todo create() {
+        Todo todo = new Todo(null, "benchmark", false, LocalDateTime.now());
+        todoRepository.create(todo);
+        return todo;
+    }
+}
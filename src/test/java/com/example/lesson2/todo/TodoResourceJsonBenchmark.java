@@ -0,0 +1,62 @@
+package com.example.lesson2.todo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of turning the rows of {@code GET /todos} into the JSON response body:
+ * bean mapping plus Jackson serialization of the {@link TodoResource} list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoResourceJsonBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+
+    private TodoBeanMapper todoBeanMapper;
+
+    private List<Todo> todos;
+
+    private List<TodoResource> todoResources;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        todoBeanMapper = new DirectTodoBeanMapper();
+        todos = new ArrayList<>(size);
+        todoResources = new ArrayList<>(size);
+        LocalDateTime createdAt = LocalDateTime.of(2021, 10, 11, 1, 1, 1);
+        for (int i = 0; i < size; i++) {
+            Todo todo = new Todo((long) i, "sample todo " + i, i % 2 == 0, createdAt.plusSeconds(i));
+            todos.add(todo);
+            todoResources.add(todoBeanMapper.toResource(todo));
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(todoResources);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        List<TodoResource> mapped = new ArrayList<>(todos.size());
+        for (Todo todo : todos) {
+            mapped.add(todoBeanMapper.toResource(todo));
+        }
+        return objectMapper.writeValueAsBytes(mapped);
+    }
+}
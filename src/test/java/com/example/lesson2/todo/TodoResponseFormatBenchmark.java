@@ -0,0 +1,75 @@
+package com.example.lesson2.todo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the {@code GET /todos} body formats: the current JSON list of {@link TodoResource}s
+ * against NDJSON and CBOR written by {@link TodoStreamWriter}.
+ * Bytes on the wire per response are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoResponseFormatBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+
+    private TodoBeanMapper todoBeanMapper;
+
+    private TodoStreamWriter todoStreamWriter;
+
+    private List<Todo> todos;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        todoBeanMapper = new DirectTodoBeanMapper();
+        todoStreamWriter = new TodoStreamWriter();
+        todoStreamWriter.objectMapper = objectMapper;
+        todoStreamWriter.afterPropertiesSet();
+        todos = new ArrayList<>(size);
+        LocalDateTime createdAt = LocalDateTime.of(2021, 10, 11, 1, 1, 1);
+        for (int i = 0; i < size; i++) {
+            todos.add(new Todo((long) i, "sample todo " + i, i % 2 == 0, createdAt.plusSeconds(i)));
+        }
+        System.out.printf("%nbytes per response (size=%d): json=%d, ndjson=%d, cbor=%d%n",
+                size, json().length, ndjson().length, cbor().length);
+    }
+
+    @Benchmark
+    public byte[] json() throws IOException {
+        List<TodoResource> todoResources = new ArrayList<>(todos.size());
+        for (Todo todo : todos) {
+            todoResources.add(todoBeanMapper.toResource(todo));
+        }
+        return objectMapper.writeValueAsBytes(todoResources);
+    }
+
+    @Benchmark
+    public byte[] ndjson() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        todoStreamWriter.writeNdjson(todos::forEach, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] cbor() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        todoStreamWriter.writeCbor(todos::forEach, outputStream);
+        return outputStream.toByteArray();
+    }
+}
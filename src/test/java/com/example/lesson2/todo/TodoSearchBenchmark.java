@@ -0,0 +1,62 @@
+package com.example.lesson2.todo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TodoSearchIndex} lookups over titles of three words drawn from a vocabulary with a few common words
+ * and a long tail, the shape that makes the candidate set of the rarest term small.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoSearchBenchmark {
+    private static final int VOCABULARY_SIZE = 50_000;
+
+    @Param({"1000000"})
+    public int todoCount;
+
+    private TodoSearchIndex todoSearchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        todoSearchIndex = new TodoSearchIndex();
+        SplittableRandom random = new SplittableRandom(42);
+        for (long todoId = 1; todoId <= todoCount; todoId++) {
+            String title = word(random) + " " + word(random) + " " + word(random);
+            todoSearchIndex.add(new Todo(todoId, title, false, null));
+        }
+    }
+
+    private static String word(SplittableRandom random) {
+        // squaring skews the draw towards the low, common words
+        double draw = random.nextDouble();
+        return "w" + Integer.toString((int) (draw * draw * VOCABULARY_SIZE), 36);
+    }
+
+    @Benchmark
+    public List<Long> searchRareWord() {
+        return todoSearchIndex.search(rareWord(), 0, 20);
+    }
+
+    @Benchmark
+    public List<Long> searchCommonAndRareWord() {
+        return todoSearchIndex.search("w1 " + rareWord(), 0, 20);
+    }
+
+    @Benchmark
+    public List<Long> searchPrefix() {
+        return todoSearchIndex.search(rareWord().substring(0, 3), 0, 20);
+    }
+
+    private static String rareWord() {
+        return "w" + Integer.toString(ThreadLocalRandom.current().nextInt(VOCABULARY_SIZE / 2, VOCABULARY_SIZE), 36);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.lesson2.todo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TodoSearchIndexTest {
+    private TodoSearchIndex todoSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        todoSearchIndex = new TodoSearchIndex();
+        todoSearchIndex.add(new Todo(1L, "Buy milk", false, null));
+        todoSearchIndex.add(new Todo(2L, "buy milkshake", false, null));
+        todoSearchIndex.add(new Todo(3L, "Pay the bill", true, null));
+        todoSearchIndex.add(new Todo(4L, "buy, milk!", false, null));
+        todoSearchIndex.add(new Todo(5L, "牛乳を買う", false, null));
+    }
+
+    @Test
+    @DisplayName("タイトルが小文字の語と漢字・かなのbigramに分割されることを確認する")
+    void testTerms() {
+        assertThat(TodoSearchIndex.terms("Buy, MILK & buy 2 eggs")).containsExactly("buy", "milk", "2", "eggs");
+        assertThat(TodoSearchIndex.terms("牛乳を買う")).containsExactly("牛乳", "乳を", "を買", "買う");
+        assertThat(TodoSearchIndex.terms("コーヒーを買う")).containsExactly("コー", "ーヒ", "ヒー", "ーを", "を買", "買う");
+        assertThat(TodoSearchIndex.terms("todo牛")).containsExactly("todo", "牛");
+        assertThat(TodoSearchIndex.indexTerms("牛乳を買う"))
+                .containsExactly("牛乳", "乳を", "を買", "買う", "牛", "乳", "を", "買", "う");
+        assertThat(TodoSearchIndex.terms(" - ")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("全ての語に前方一致し、完全一致の多い順・新しい順に並ぶことを確認する")
+    void testSearch() {
+        assertThat(todoSearchIndex.search("milk buy", 0, 10)).containsExactly(4L, 1L, 2L);
+        assertThat(todoSearchIndex.search("MIL", 0, 10)).containsExactly(4L, 2L, 1L);
+        assertThat(todoSearchIndex.search("buy bill", 0, 10)).isEmpty();
+        assertThat(todoSearchIndex.search("買う", 0, 10)).containsExactly(5L);
+        assertThat(todoSearchIndex.search("牛乳", 0, 10)).containsExactly(5L);
+        assertThat(todoSearchIndex.search("!", 0, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("漢字・かな一文字の検索が語の途中や末尾の文字にも一致することを確認する")
+    void testSearchSingleCjkCharacter() {
+        assertThat(todoSearchIndex.search("う", 0, 10)).containsExactly(5L);
+        assertThat(todoSearchIndex.search("乳", 0, 10)).containsExactly(5L);
+        assertThat(todoSearchIndex.search("牛", 0, 10)).containsExactly(5L);
+        assertThat(todoSearchIndex.search("茶", 0, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("offsetとlimitでページングされることを確認する")
+    void testSearchPage() {
+        assertThat(todoSearchIndex.search("buy", 0, 2)).containsExactly(4L, 2L);
+        assertThat(todoSearchIndex.search("buy", 2, 2)).containsExactly(1L);
+        assertThat(todoSearchIndex.search("buy", 3, 2)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("削除済みと報告されたTodoはページングの前に除かれることを確認する")
+    void testRemoveStale() {
+        todoSearchIndex.removeStale(Arrays.asList(4L));
+
+        assertThat(todoSearchIndex.search("buy", 0, 2)).containsExactly(2L, 1L);
+        assertThat(todoSearchIndex.search("buy", 2, 2)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("作成・削除のイベントで索引が更新されることを確認する")
+    void testOnTodoChanged() {
+        todoSearchIndex.onTodoChanged(new TodoChangedEvent(TodoChangedEvent.Type.DELETED,
+                new Todo(1L, "Buy milk", false, null)));
+        todoSearchIndex.onTodoChanged(new TodoChangedEvent(TodoChangedEvent.Type.CREATED,
+                new Todo(6L, "milk the cow", false, null)));
+        todoSearchIndex.onTodoChanged(new TodoChangedEvent(TodoChangedEvent.Type.FINISHED,
+                new Todo(2L, "buy milkshake", true, null)));
+
+        assertThat(todoSearchIndex.search("milk", 0, 10)).containsExactly(6L, 4L, 2L);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.lesson2.todo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+public class TodoServiceBatchTest {
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("一括作成が実際のDBで未完了件数の上限まで作成し、残りを409にすることを確認する(service)")
+    void testCreateAll() {
+        List<TodoBatchResult> results = todoService.createAll(Arrays.asList(
+                new Todo(null, "batch 1", false, null),
+                new Todo(null, "batch 2", false, null),
+                new Todo(null, "batch 3", false, null),
+                new Todo(null, "batch 4", false, null)));
+
+        assertThat(results).extracting(TodoBatchResult::getStatus).containsExactly(
+                TodoBatchResult.Status.OK, TodoBatchResult.Status.OK, TodoBatchResult.Status.OK,
+                TodoBatchResult.Status.CONFLICT);
+        assertThat(results.get(0).getTodo().getTodoId()).isNotNull();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM todo WHERE owner = ? AND finished = false", Long.class, Todo.DEFAULT_OWNER))
+                .isEqualTo(5L);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.lesson2.todo;
+
+import com.example.lesson2.common.exception.BusinessException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TodoServiceImpl#create} including the unfinished quota check. Each create runs
+ * inside a rolled-back transaction, so the table and the quota stay where they started.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoServiceBenchmark {
+    private ConfigurableApplicationContext context;
+
+    private TodoService todoService;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = TodoBenchmarkSupport.start("service");
+        todoService = context.getBean(TodoService.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Todo create() {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return todoService.create(new Todo(null, "benchmark", false, null));
+        });
+    }
+
+    @Benchmark
+    public Object createOverQuota() {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            try {
+                while (true) {
+                    todoService.create(new Todo(null, "benchmark", false, null));
+                }
+            } catch (BusinessException e) {
+                return e;
+            }
+        });
+    }
+}
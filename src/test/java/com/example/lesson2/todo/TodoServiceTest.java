@@ -1,20 +1,28 @@
 package com.example.lesson2.todo;
 
+import com.example.lesson2.common.exception.BusinessException;
+import com.example.lesson2.common.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.BDDMockito.*;
 import static org.mockito.Mockito.times;
 
@@ -28,6 +36,21 @@ public class TodoServiceTest {
     @MockBean
     private TodoRepository todoRepository;
 
+    @MockBean
+    private TodoBatchRepository todoBatchRepository;
+
+    // the real index would read the mocked repository at startup
+    @MockBean
+    private TodoSearchIndex todoSearchIndex;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void clearCache() {
+        cacheManager.getCache(TodoServiceImpl.TODO_CACHE).clear();
+    }
+
     @Test
     @DisplayName("全Todoが取得できるkとを確認")
     void testFindAll() {
@@ -42,6 +65,24 @@ public class TodoServiceTest {
         assertThat(actualTodos).usingFieldByFieldElementComparator().containsExactly(expectTodo1, expectTodo2, expectTodo3);
     }
 
+    @Test
+    @DisplayName("検索結果が索引の順位どおりに返され、削除済みのTodoを除いてもページが埋まることを確認する(Service)")
+    void testSearch() {
+        Todo expectTodo1 = new Todo(1L, "sample 1", false, LocalDateTime.parse("2021/10/11 01:01:01", DATETIME_FORMAT));
+        Todo expectTodo3 = new Todo(3L, "sample 3", false, LocalDateTime.parse("2021/10/11 01:01:01", DATETIME_FORMAT));
+        Todo expectTodo4 = new Todo(4L, "sample 4", false, LocalDateTime.parse("2021/10/11 01:01:01", DATETIME_FORMAT));
+
+        given(todoSearchIndex.search("sample", 0, 3))
+                .willReturn(Arrays.asList(3L, 2L, 1L), Arrays.asList(3L, 1L, 4L));
+        given(todoRepository.findAllById(Arrays.asList(3L, 2L, 1L))).willReturn(Arrays.asList(expectTodo1, expectTodo3));
+        given(todoRepository.findAllById(Arrays.asList(3L, 1L, 4L)))
+                .willReturn(Arrays.asList(expectTodo1, expectTodo3, expectTodo4));
+        List<Todo> actualTodos = todoService.search("sample", 0, 3);
+
+        then(todoSearchIndex).should().removeStale(Arrays.asList(2L));
+        assertThat(actualTodos).containsExactly(expectTodo3, expectTodo1, expectTodo4);
+    }
+
     @Test
     @DisplayName("todoIdに対応するTodoが取得できることを確認する(Service)")
     void testFindOne() {
@@ -53,12 +94,41 @@ public class TodoServiceTest {
         assertThat(actualTodo).isEqualToComparingFieldByField(expectTodo);
     }
 
+    @Test
+    @DisplayName("2回目以降のfindOneはキャッシュから返されることを確認する(Service)")
+    void testFindOneCached() {
+        Todo expectTodo = new Todo(1L, "sample todo 1", false, LocalDateTime.parse("2019/09/19 01:01:01", DATETIME_FORMAT));
+        given(todoRepository.findById(1L)).willReturn(Optional.of(expectTodo));
+
+        todoService.findOne(1L);
+        Todo actualTodo = todoService.findOne(1L);
+
+        then(todoRepository).should(times(1)).findById(1L);
+        assertThat(actualTodo).isEqualToComparingFieldByField(expectTodo);
+    }
+
+    @Test
+    @DisplayName("削除したTodoがキャッシュから取り除かれることを確認する(Service)")
+    void testDeleteEvictsCache() {
+        Todo expectTodo = new Todo(1L, "sample todo 1", false, LocalDateTime.parse("2019/09/19 01:01:01", DATETIME_FORMAT));
+        given(todoRepository.findById(1L)).willReturn(Optional.of(expectTodo));
+        given(todoRepository.deleteByIdReturning(1L)).willReturn(Optional.of(expectTodo));
+
+        todoService.findOne(1L);
+        todoService.delete(1L);
+
+        assertThat(cacheManager.getCache(TodoServiceImpl.TODO_CACHE).get(1L)).isNull();
+    }
+
     @Test
     @DisplayName("新たなTodoが作成できることを確認する(service)")
     void testCreate() {
         Todo expectTodo = new Todo(null, "sample todo 4", false, null);
 
-        willDoNothing().given(todoRepository).create(expectTodo);
+        willAnswer(invocation -> {
+            invocation.<Todo>getArgument(0).setTodoId(4L);
+            return null;
+        }).given(todoRepository).create(expectTodo);
 
         todoService.create(expectTodo);
 
@@ -71,18 +141,79 @@ public class TodoServiceTest {
         );
     }
 
+    @Test
+    @DisplayName("作成したTodoがキャッシュに格納されることを確認する(service)")
+    void testCreatePutsCache() {
+        Todo expectTodo = new Todo(null, "sample todo 4", false, null);
+        willAnswer(invocation -> {
+            invocation.<Todo>getArgument(0).setTodoId(4L);
+            return null;
+        }).given(todoRepository).create(expectTodo);
+
+        todoService.create(expectTodo);
+        Todo actualTodo = todoService.findOne(4L);
+
+        then(todoRepository).should(times(0)).findById(4L);
+        assertThat(actualTodo).isSameAs(expectTodo);
+    }
+
     @Test
     @DisplayName("todoId=1のfinishedがtrueになることを確認する(service)")
     void testFinish() {
-        Todo expectTodo = new Todo(1L, "sample todo 1", false, LocalDateTime.parse("2019/09/19 01:01:01", DATETIME_FORMAT));
+        Todo expectTodo = new Todo(1L, "sample todo 1", true, LocalDateTime.parse("2019/09/19 01:01:01", DATETIME_FORMAT));
 
-        given(todoRepository.findById(1L)).willReturn(Optional.of(expectTodo));
-        given(todoRepository.updateById(1L)).willReturn(1L);
+        given(todoRepository.finishById(1L)).willReturn(Optional.of(expectTodo));
 
-        todoService.finish(1L);
+        Todo actualTodo = todoService.finish(1L);
 
-        then(todoRepository).should(times(1)).findById(ArgumentMatchers.longThat(arg -> arg == expectTodo.getTodoId()));
-        then(todoRepository).should(times(1)).updateById(ArgumentMatchers.longThat(arg -> arg == 1L));
+        then(todoRepository).should(times(1)).finishById(ArgumentMatchers.longThat(arg -> arg == 1L));
+        then(todoRepository).should(never()).findById(any());
+        assertThat(actualTodo).isSameAs(expectTodo);
+    }
+
+    @Test
+    @DisplayName("完了済みのTodoをfinishすると業務例外になることを確認する(service)")
+    void testFinishAlreadyFinished() {
+        Todo expectTodo = new Todo(2L, "sample todo 2", true, LocalDateTime.parse("2019/09/19 02:02:02", DATETIME_FORMAT));
+
+        given(todoRepository.finishById(2L)).willReturn(Optional.empty());
+        given(todoRepository.findById(2L)).willReturn(Optional.of(expectTodo));
+
+        assertThatThrownBy(() -> todoService.finish(2L))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage(TodoServiceImpl.alreadyFinishedMessage(2L));
+    }
+
+    @Test
+    @DisplayName("存在しないTodoをfinishするとResourceNotFoundExceptionになることを確認する(service)")
+    void testFinishNotFound() {
+        given(todoRepository.finishById(9L)).willReturn(Optional.empty());
+        given(todoRepository.findById(9L)).willReturn(Optional.empty());
+
+        assertThatThrownBy(() -> todoService.finish(9L))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("一括完了の結果が完了後に読み直したTodoになることを確認する(service)")
+    void testFinishAll() {
+        LocalDateTime createdAt = LocalDateTime.parse("2019/09/19 01:01:01", DATETIME_FORMAT);
+        Todo unfinishedTodo = new Todo(1L, "sample todo 1", false, createdAt);
+        Todo finishedTodo = new Todo(2L, "sample todo 2", true, createdAt);
+        Todo updatedTodo = new Todo(1L, "sample todo 1", true, createdAt);
+
+        given(todoBatchRepository.findAllById(new LinkedHashSet<>(Arrays.asList(1L, 2L, 9L))))
+                .willReturn(Arrays.asList(unfinishedTodo, finishedTodo));
+        given(todoBatchRepository.flush()).willReturn(new int[]{1});
+        given(todoBatchRepository.findAllById(new LinkedHashSet<>(Collections.singletonList(1L))))
+                .willReturn(Collections.singletonList(updatedTodo));
+
+        List<TodoBatchResult> results = todoService.finishAll(Arrays.asList(1L, 2L, 9L));
+
+        then(todoBatchRepository).should(times(1)).updateUnfinishedById(1L);
+        assertThat(results).extracting(TodoBatchResult::getStatus).containsExactly(
+                TodoBatchResult.Status.OK, TodoBatchResult.Status.CONFLICT, TodoBatchResult.Status.NOT_FOUND);
+        assertThat(results.get(0).getTodo()).isSameAs(updatedTodo);
     }
 
     @Test
@@ -90,12 +221,20 @@ public class TodoServiceTest {
     void testDelete() {
         Todo expectTodo = new Todo(1L, "sample todo 1", false, LocalDateTime.parse("2019/09/19 01:01:01", DATETIME_FORMAT));
 
-        given(todoRepository.findById(1L)).willReturn(Optional.of(expectTodo));
-        given(todoRepository.deleteById(1L)).willReturn(1L);
+        given(todoRepository.deleteByIdReturning(1L)).willReturn(Optional.of(expectTodo));
 
         todoService.delete(1L);
 
-        then(todoRepository).should(times(1)).findById(ArgumentMatchers.longThat(arg -> arg == expectTodo.getTodoId()));
-        then(todoRepository).should(times(1)).deleteById(ArgumentMatchers.longThat(arg -> arg == 1L));
+        then(todoRepository).should(times(1)).deleteByIdReturning(ArgumentMatchers.longThat(arg -> arg == 1L));
+        then(todoRepository).should(never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("存在しないTodoをDeleteするとResourceNotFoundExceptionになることを確認する(service)")
+    void testDeleteNotFound() {
+        given(todoRepository.deleteByIdReturning(9L)).willReturn(Optional.empty());
+
+        assertThatThrownBy(() -> todoService.delete(9L))
+                .isInstanceOf(ResourceNotFoundException.class);
     }
 }
@@ -0,0 +1,190 @@
+package com.example.lesson2.todo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TodoWriteAheadLogTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("ログの再生で作成・完了・削除が復元されることを確認する")
+    void testRecover() throws IOException {
+        InMemoryTodoRepository todoRepository = new InMemoryTodoRepository();
+        TodoWriteAheadLog writeAheadLog = open(todoRepository);
+        writeTodos(todoRepository, 100);
+        writeAheadLog.destroy();
+
+        InMemoryTodoRepository recovered = new InMemoryTodoRepository();
+        open(recovered).destroy();
+
+        assertThat(segments()).hasSizeGreaterThan(1);
+        assertSameTodos(recovered, todoRepository);
+    }
+
+    @Test
+    @DisplayName("スナップショットとその後のログから復元され、不要なセグメントが削除されることを確認する")
+    void testRecoverFromSnapshot() throws IOException {
+        InMemoryTodoRepository todoRepository = new InMemoryTodoRepository();
+        TodoWriteAheadLog writeAheadLog = open(todoRepository);
+        writeTodos(todoRepository, 100);
+        int segmentsBeforeSnapshot = segments().size();
+        writeAheadLog.snapshot();
+        writeTodos(todoRepository, 10);
+        writeAheadLog.destroy();
+
+        InMemoryTodoRepository recovered = new InMemoryTodoRepository();
+        open(recovered).destroy();
+
+        assertThat(segments().size()).isLessThan(segmentsBeforeSnapshot);
+        assertSameTodos(recovered, todoRepository);
+        Todo created = new Todo(null, "after recovery", false, LocalDateTime.now());
+        recovered.create(created);
+        assertThat(created.getTodoId()).isEqualTo(todoRepository.getIdSequence() + 1);
+    }
+
+    @Test
+    @DisplayName("途中で壊れた末尾のレコードは捨てられ、それ以前のレコードが復元されることを確認する")
+    void testRecoverTornTail() throws IOException {
+        InMemoryTodoRepository todoRepository = new InMemoryTodoRepository();
+        TodoWriteAheadLog writeAheadLog = open(todoRepository);
+        todoRepository.create(new Todo(null, "kept", false, LocalDateTime.now()));
+        todoRepository.create(new Todo(null, "torn", false, LocalDateTime.now()));
+        writeAheadLog.destroy();
+
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int lastRecord = 0;
+            for (int position = 0; segment.getInt(position) > 0; position += 8 + segment.getInt(position)) {
+                lastRecord = position;
+            }
+            segment.put(lastRecord + 20, (byte) (segment.get(lastRecord + 20) ^ 0xff));
+            segment.force();
+        }
+
+        InMemoryTodoRepository recovered = new InMemoryTodoRepository();
+        open(recovered).destroy();
+
+        assertThat(recovered.findAll()).extracting(Todo::getTodoTitle).containsExactly("kept");
+    }
+
+    @Test
+    @DisplayName("並行して書き込んだログからも同じ状態が復元されることを確認する")
+    void testRecoverConcurrentAppends() throws Exception {
+        InMemoryTodoRepository todoRepository = new InMemoryTodoRepository();
+        TodoWriteAheadLog writeAheadLog = open(todoRepository);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> writeTodos(todoRepository, 200)));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        writeAheadLog.destroy();
+
+        InMemoryTodoRepository recovered = new InMemoryTodoRepository();
+        open(recovered).destroy();
+
+        assertSameTodos(recovered, todoRepository);
+    }
+
+    @Test
+    @DisplayName("セグメントの間でLSNが途切れていると、以降のセグメントは再生されずに退避されることを確認する")
+    void testRecoverStopsAtSegmentGap() throws IOException {
+        InMemoryTodoRepository todoRepository = new InMemoryTodoRepository();
+        TodoWriteAheadLog writeAheadLog = open(todoRepository);
+        writeTodos(todoRepository, 100);
+        writeAheadLog.destroy();
+        List<Path> segments = segments();
+        assertThat(segments).hasSizeGreaterThan(2);
+        Files.delete(segments.get(1));
+
+        InMemoryTodoRepository recovered = new InMemoryTodoRepository();
+        TodoWriteAheadLog recoveredLog = open(recovered);
+        recovered.create(new Todo(null, "after gap", false, LocalDateTime.now()));
+        recoveredLog.destroy();
+
+        InMemoryTodoRepository reopened = new InMemoryTodoRepository();
+        open(reopened).destroy();
+
+        assertThat(recovered.findAll()).hasSizeLessThan(todoRepository.findAll().size())
+                .extracting(Todo::getTodoTitle).contains("after gap");
+        assertSameTodos(reopened, recovered);
+        try (Stream<Path> paths = Files.list(directory)) {
+            assertThat(paths.filter(path -> path.getFileName().toString().endsWith(".log.discarded")))
+                    .hasSize(segments.size() - 2);
+        }
+    }
+
+    @Test
+    @DisplayName("書きかけのまま残ったスナップショットが起動時に削除されることを確認する")
+    void testDeleteTemporarySnapshot() throws IOException {
+        Path temporary = Files.createFile(directory.resolve("snapshot-00000000000000000042.tmp"));
+
+        open(new InMemoryTodoRepository()).destroy();
+
+        assertThat(temporary).doesNotExist();
+    }
+
+    private TodoWriteAheadLog open(InMemoryTodoRepository todoRepository) throws IOException {
+        TodoWriteAheadLog writeAheadLog = new TodoWriteAheadLog();
+        writeAheadLog.directory = directory.toString();
+        writeAheadLog.segmentSizeBytes = 1024;
+        writeAheadLog.fsync = TodoWriteAheadLog.FsyncPolicy.NONE;
+        writeAheadLog.snapshotIntervalMillis = 0;
+        writeAheadLog.todoRepository = todoRepository;
+        writeAheadLog.afterPropertiesSet();
+        return writeAheadLog;
+    }
+
+    private void writeTodos(InMemoryTodoRepository todoRepository, int count) {
+        for (int i = 0; i < count; i++) {
+            Todo todo = new Todo(null, "todo " + i, false, LocalDateTime.now());
+            todoRepository.create(todo);
+            if (i % 3 == 0) {
+                todoRepository.finishById(todo.getTodoId());
+            }
+            if (i % 5 == 0) {
+                todoRepository.deleteById(todo.getTodoId());
+            }
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(".log")).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void assertSameTodos(InMemoryTodoRepository actual, InMemoryTodoRepository expected) {
+        assertThat(actual.findAll()).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(expected.findAll());
+        assertThat(actual.countByFinished(false)).isEqualTo(expected.countByFinished(false));
+        assertThat(actual.countByFinished(true)).isEqualTo(expected.countByFinished(true));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.lesson2.todo;
+
+import com.example.lesson2.common.exception.BusinessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+
+public class TodoWriteBehindBufferTest {
+    private TodoWriteBehindBuffer todoWriteBehindBuffer;
+
+    private TodoRepository todoRepository;
+
+    private TodoBatchRepository todoBatchRepository;
+
+    private UnfinishedTodoCounter unfinishedTodoCounter;
+
+    @BeforeEach
+    void setUp() {
+        AtomicLong idSequence = new AtomicLong();
+        todoRepository = mock(TodoRepository.class);
+        given(todoRepository.allocateIds(anyInt())).willAnswer(invocation -> LongStream
+                .rangeClosed(1, invocation.<Integer>getArgument(0))
+                .mapToObj(i -> idSequence.incrementAndGet())
+                .collect(Collectors.toList()));
+        todoBatchRepository = mock(TodoBatchRepository.class);
+        unfinishedTodoCounter = mock(UnfinishedTodoCounter.class);
+        given(unfinishedTodoCounter.tryReserve(anyString(), anyLong())).willReturn(true);
+
+        todoWriteBehindBuffer = new TodoWriteBehindBuffer();
+        todoWriteBehindBuffer.flushIntervalMillis = 1;
+        todoWriteBehindBuffer.maxBatchSize = 10;
+        todoWriteBehindBuffer.idBlockSize = 10;
+        todoWriteBehindBuffer.ack = TodoWriteBehindBuffer.Ack.FLUSH;
+        todoWriteBehindBuffer.todoRepository = todoRepository;
+        todoWriteBehindBuffer.todoBatchRepository = todoBatchRepository;
+        todoWriteBehindBuffer.unfinishedTodoCounter = unfinishedTodoCounter;
+        todoWriteBehindBuffer.quotaProperties = new TodoQuotaProperties();
+        todoWriteBehindBuffer.eventPublisher = mock(ApplicationEventPublisher.class);
+        todoWriteBehindBuffer.transactionManager = mock(PlatformTransactionManager.class);
+        todoWriteBehindBuffer.afterPropertiesSet();
+    }
+
+    @Test
+    @DisplayName("上限を超えたTodoはキューに入れる前に拒否され、ENQUEUEでも受け付けたことにならないことを確認する")
+    void testEnqueueOverQuota() {
+        todoWriteBehindBuffer.ack = TodoWriteBehindBuffer.Ack.ENQUEUE;
+        given(unfinishedTodoCounter.tryReserve(Todo.DEFAULT_OWNER, 5)).willReturn(false);
+
+        assertThatThrownBy(() -> todoWriteBehindBuffer.enqueue(new Todo(null, "over quota", false, null)))
+                .isInstanceOf(BusinessException.class);
+        then(todoRepository).should(never()).allocateIds(anyInt());
+    }
+
+    @Test
+    @DisplayName("書き込みに失敗したバッチの未完了枠が解放されることを確認する")
+    void testFlushFailureReleasesQuota() {
+        given(todoBatchRepository.flush()).willThrow(new IllegalStateException("flush failed"));
+
+        assertThatThrownBy(() -> todoWriteBehindBuffer.enqueue(new Todo(null, "failed flush", false, null)))
+                .hasMessage("flush failed");
+        then(unfinishedTodoCounter).should().release(Collections.singletonMap(Todo.DEFAULT_OWNER, 1));
+    }
+
+    @Test
+    @DisplayName("停止後のTodoは受け付けられないことを確認する")
+    void testEnqueueAfterDestroy() throws InterruptedException {
+        todoWriteBehindBuffer.destroy();
+
+        assertThatThrownBy(() -> todoWriteBehindBuffer.enqueue(new Todo(null, "after destroy", false, null)))
+                .isInstanceOf(IllegalStateException.class);
+        then(unfinishedTodoCounter).should().release(Todo.DEFAULT_OWNER);
+    }
+
+    @Test
+    @DisplayName("停止と並行して追加されたTodoも、書き込まれるか停止エラーになり待ち続けないことを確認する")
+    void testEnqueueConcurrentWithDestroy() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch started = new CountDownLatch(4);
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    started.countDown();
+                    int written = 0;
+                    while (true) {
+                        try {
+                            todoWriteBehindBuffer.enqueue(new Todo(null, "concurrent", false, null));
+                            written++;
+                        } catch (IllegalStateException e) {
+                            return written;
+                        }
+                    }
+                }));
+            }
+            started.await();
+            todoWriteBehindBuffer.destroy();
+
+            for (Future<Integer> future : futures) {
+                assertThat(future.get(5, TimeUnit.SECONDS)).isNotNegative();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.lesson2.todo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+public class UnfinishedTodoCounterTest {
+    private TodoRepository todoRepository;
+
+    private UnfinishedTodoCounter unfinishedTodoCounter;
+
+    @BeforeEach
+    void setUp() {
+        todoRepository = mock(TodoRepository.class);
+        given(todoRepository.countUnfinishedByOwner(Todo.DEFAULT_OWNER)).willReturn(3L);
+
+        unfinishedTodoCounter = new UnfinishedTodoCounter();
+        unfinishedTodoCounter.todoRepository = todoRepository;
+        unfinishedTodoCounter.transactionManager = mock(PlatformTransactionManager.class);
+    }
+
+    @Test
+    @DisplayName("最初の予約でDBの未完了件数から初期化され、上限まで予約できることを確認する")
+    void testTryReserve() {
+        assertThat(unfinishedTodoCounter.tryReserve(Todo.DEFAULT_OWNER, 5)).isTrue();
+        assertThat(unfinishedTodoCounter.tryReserve(Todo.DEFAULT_OWNER, 5)).isTrue();
+        assertThat(unfinishedTodoCounter.tryReserve(Todo.DEFAULT_OWNER, 5)).isFalse();
+
+        unfinishedTodoCounter.release(Todo.DEFAULT_OWNER);
+
+        assertThat(unfinishedTodoCounter.tryReserve(Todo.DEFAULT_OWNER, 5)).isTrue();
+        assertThat(unfinishedTodoCounter.get(Todo.DEFAULT_OWNER)).isEqualTo(5L);
+        then(todoRepository).should(times(1)).countUnfinishedByOwner(Todo.DEFAULT_OWNER);
+    }
+
+    @Test
+    @DisplayName("所有者ごとに別々の上限で予約されることを確認する")
+    void testTryReservePerOwner() {
+        assertThat(unfinishedTodoCounter.tryReserve("alice", 3, 2)).isEqualTo(2);
+        assertThat(unfinishedTodoCounter.tryReserve("alice", 2)).isFalse();
+        assertThat(unfinishedTodoCounter.tryReserve(Todo.DEFAULT_OWNER, 5)).isTrue();
+
+        assertThat(unfinishedTodoCounter.get("alice")).isEqualTo(2L);
+        assertThat(unfinishedTodoCounter.get(Todo.DEFAULT_OWNER)).isEqualTo(4L);
+    }
+
+    @Test
+    @DisplayName("ロールバックされた予約は戻され、完了・削除による解放はコミット後に反映されることを確認する")
+    void testReleaseWithTransaction() {
+        assertThat(unfinishedTodoCounter.get(Todo.DEFAULT_OWNER)).isEqualTo(3L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThat(unfinishedTodoCounter.tryReserve(Todo.DEFAULT_OWNER, 2, 5)).isEqualTo(2);
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(unfinishedTodoCounter.get(Todo.DEFAULT_OWNER)).isEqualTo(3L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            unfinishedTodoCounter.release(Todo.DEFAULT_OWNER, 2);
+            assertThat(unfinishedTodoCounter.get(Todo.DEFAULT_OWNER)).isEqualTo(3L);
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(unfinishedTodoCounter.get(Todo.DEFAULT_OWNER)).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("まだ数えていない所有者の解放ではDBを読まないことを確認する")
+    void testReleaseBeforeSeeded() {
+        unfinishedTodoCounter.release(Todo.DEFAULT_OWNER);
+
+        then(todoRepository).should(never()).countUnfinishedByOwner(Todo.DEFAULT_OWNER);
+        assertThat(unfinishedTodoCounter.get(Todo.DEFAULT_OWNER)).isEqualTo(3L);
+    }
+
+    @Test
+    @DisplayName("同時に予約しても上限を超えないことを確認する")
+    void testTryReserveConcurrently() throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            executorService.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (unfinishedTodoCounter.tryReserve(Todo.DEFAULT_OWNER, 50)) {
+                    reserved.incrementAndGet();
+                }
+            });
+        }
+        start.countDown();
+        executorService.shutdown();
+        executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertThat(reserved.get()).isEqualTo(47);
+        assertThat(unfinishedTodoCounter.get(Todo.DEFAULT_OWNER)).isEqualTo(50L);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.lesson2.todo;
+
+import com.example.lesson2.common.exception.BusinessException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {"todo.write-behind.enabled=true", "todo.write-behind.flush-interval-ms=50"})
+public class WriteBehindTodoServiceTest {
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Test
+    @DisplayName("まとめてコミットされたTodoが採番済みのIDで取得でき、未完了件数の上限も守られることを確認する")
+    void testCreate() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<Todo>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                String todoTitle = "write behind " + i;
+                futures.add(executor.submit(() -> todoService.create(new Todo(null, todoTitle, false, null))));
+            }
+            for (Future<Todo> future : futures) {
+                Todo createdTodo = future.get(5, TimeUnit.SECONDS);
+
+                assertThat(createdTodo.getTodoId()).isNotNull();
+                assertThat(todoRepository.findById(createdTodo.getTodoId()))
+                        .hasValueSatisfying(todo -> assertThat(todo.getTodoTitle()).isEqualTo(createdTodo.getTodoTitle()));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThatThrownBy(() -> todoService.create(new Todo(null, "over quota", false, null)))
+                .isInstanceOf(BusinessException.class);
+    }
+}